@@ -0,0 +1,50 @@
+package ma.fstt.paymentservice.api.controller;
+
+import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.api.dto.AvailabilityResponse;
+import ma.fstt.paymentservice.core.service.BookingAvailabilityIndex;
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.slf4j.MDC;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/payments")
+@RequiredArgsConstructor
+public class AvailabilityController {
+
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+
+    @GetMapping("/properties/{id}/availability")
+    public ResponseEntity<AvailabilityResponse> getAvailability(
+            @PathVariable String id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) {
+        try {
+            MDC.put("propertyId", id);
+
+            if (checkOut.isBefore(checkIn)) {
+                throw new BusinessException("INVALID_DATE_RANGE",
+                        "checkOut (" + checkOut + ") must not be before checkIn (" + checkIn + ")");
+            }
+
+            List<Long> conflicts = bookingAvailabilityIndex.findOverlappingBookingIds(id, null, checkIn, checkOut);
+
+            AvailabilityResponse response = AvailabilityResponse.builder()
+                    .propertyId(id)
+                    .checkInDate(checkIn)
+                    .checkOutDate(checkOut)
+                    .available(conflicts.isEmpty())
+                    .conflictingBookingIds(conflicts)
+                    .build();
+
+            return ResponseEntity.ok(response);
+        } finally {
+            MDC.remove("propertyId");
+        }
+    }
+}
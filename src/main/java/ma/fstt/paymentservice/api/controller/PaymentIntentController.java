@@ -2,48 +2,74 @@ package ma.fstt.paymentservice.api.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.api.dto.BatchPaymentIntentItem;
+import ma.fstt.paymentservice.api.dto.BatchPaymentIntentRequest;
 import ma.fstt.paymentservice.api.dto.BookingDetailsResponse;
+import ma.fstt.paymentservice.api.dto.IntentStatusResponse;
 import ma.fstt.paymentservice.api.dto.PaymentIntentRequest;
 import ma.fstt.paymentservice.api.dto.PaymentIntentResponse;
 import ma.fstt.paymentservice.api.dto.PropertyInfoResponse;
 import ma.fstt.paymentservice.api.dto.WalletAddressRequest;
+import ma.fstt.paymentservice.config.ReplicaLagGuard;
 import ma.fstt.paymentservice.core.orchestrator.PaymentOrchestrator;
+import ma.fstt.paymentservice.core.service.BookingDetailsLoader;
+import ma.fstt.paymentservice.core.service.BookingDetailsLoader.BookingDetailsSources;
+import ma.fstt.paymentservice.core.service.EntityCacheEvictor;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler;
+import ma.fstt.paymentservice.core.service.PaymentIntentCache;
 import ma.fstt.paymentservice.core.service.PropertyDatabaseService;
+import ma.fstt.paymentservice.core.service.PropertyLockManager;
+import ma.fstt.paymentservice.core.service.RequestLookupMemo;
+import ma.fstt.paymentservice.domain.converter.EthereumHex;
 import ma.fstt.paymentservice.domain.entity.Booking;
 import ma.fstt.paymentservice.domain.entity.UserAccount;
 import ma.fstt.paymentservice.domain.entity.TransactionRecord;
 import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.PropertySnapshot;
 import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
 import ma.fstt.paymentservice.domain.repository.TransactionRepository;
-import ma.fstt.paymentservice.core.messaging.BookingCreatedConsumer;
+import ma.fstt.paymentservice.core.messaging.BookingIdDispatcher;
+import ma.fstt.paymentservice.core.messaging.BookingStatusRelay;
+import ma.fstt.paymentservice.core.messaging.DeliveryDeduplicator;
 import ma.fstt.paymentservice.exception.BusinessException;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/payments")
 @RequiredArgsConstructor
 public class PaymentIntentController {
 
+    private static final String TX_HASH_DEDUP_SCOPE = "tx-hash";
+
     private final PaymentOrchestrator paymentOrchestrator;
     private final UserAccountRepository userAccountRepository;
     private final TransactionRepository transactionRepository;
     private final BookingRepository bookingRepository;
-    private final BookingCreatedConsumer bookingCreatedConsumer;
+    private final BookingIdDispatcher bookingIdDispatcher;
+    private final BookingStatusRelay bookingStatusRelay;
     private final PropertyDatabaseService propertyDatabaseService;
+    private final PaymentIntentCache paymentIntentCache;
+    private final PropertyLockManager propertyLockManager;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final BookingDetailsLoader bookingDetailsLoader;
+    private final ExpiryScheduler expiryScheduler;
+    private final DeliveryDeduplicator deliveryDeduplicator;
+    private final ReplicaLagGuard replicaLagGuard;
     private final ma.fstt.paymentservice.core.blockchain.BookingPaymentContractService contractService;
 
-    @Value("${app.booking-service.url:http://localhost:8083}")
-    private String bookingServiceUrl;
+    @Value("${app.intent.legacy-latest-lookup:false}")
+    private boolean legacyLatestIntentLookup;
 
     @PostMapping("/intent")
     public ResponseEntity<PaymentIntentResponse> createPaymentIntent(@Valid @RequestBody PaymentIntentRequest request) {
@@ -53,13 +79,42 @@ public class PaymentIntentController {
             PaymentOrchestrator.PaymentIntentResponse orchestratorResponse = paymentOrchestrator
                     .createPaymentIntent(request);
 
-            PaymentIntentResponse response = PaymentIntentResponse.builder()
-                    .referenceId(orchestratorResponse.getReferenceId())
-                    .to(orchestratorResponse.getTo())
-                    .value(orchestratorResponse.getValue())
-                    .data(orchestratorResponse.getData())
-                    .chainId(orchestratorResponse.getChainId())
-                    .totalAmountWei(orchestratorResponse.getTotalAmountWei())
+            return ResponseEntity.ok(toResponse(orchestratorResponse));
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    @PostMapping("/intents")
+    public ResponseEntity<List<BatchPaymentIntentItem>> createPaymentIntents(
+            @Valid @RequestBody BatchPaymentIntentRequest request) {
+        List<BatchPaymentIntentItem> items = paymentOrchestrator.createPaymentIntents(request.getBookingIds()).stream()
+                .map(item -> BatchPaymentIntentItem.builder()
+                        .bookingId(item.getBookingId())
+                        .intent(item.getIntent() != null ? toResponse(item.getIntent()) : null)
+                        .code(item.getErrorCode())
+                        .message(item.getErrorMessage())
+                        .build())
+                .toList();
+        return ResponseEntity.ok(items);
+    }
+
+    @GetMapping("/intent/{referenceId}")
+    public ResponseEntity<IntentStatusResponse> getPaymentIntent(@PathVariable String referenceId) {
+        try {
+            MDC.put("referenceId", referenceId);
+
+            TransactionRecord transaction = transactionRepository.findByReferenceId(parseReferenceId(referenceId))
+                    .orElseThrow(() -> new BusinessException("INTENT_NOT_FOUND",
+                            "Payment intent not found: " + referenceId));
+
+            IntentStatusResponse response = IntentStatusResponse.builder()
+                    .referenceId(transaction.getReferenceId())
+                    .bookingId(transaction.getBookingId())
+                    .status(transaction.getStatus() != null ? transaction.getStatus().name() : "UNKNOWN")
+                    .txHash(transaction.getTxHash())
+                    .amount(transaction.getAmount())
+                    .createdAt(transaction.getCreatedAt())
                     .build();
 
             return ResponseEntity.ok(response);
@@ -72,56 +127,18 @@ public class PaymentIntentController {
     public ResponseEntity<BookingDetailsResponse> getBookingDetails(@PathVariable Long bookingId) {
         try {
             MDC.put("bookingId", String.valueOf(bookingId));
+            replicaLagGuard.pinIfRecentlyWritten(bookingId);
 
-            Booking booking = bookingRepository.findById(bookingId)
-                    .orElseThrow(() -> {
-                        return new BusinessException("BOOKING_NOT_FOUND",
-                                "Booking with ID " + bookingId
-                                        + " not found. Please make sure the booking exists in the database.");
-                    });
-
-            if (booking.getPropertyId() == null) {
-                throw new BusinessException("PROPERTY_NOT_FOUND", "Booking has no property assigned");
-            }
+            BookingDetailsSources sources = bookingDetailsLoader.load(bookingId);
+            Booking booking = sources.booking();
+            PropertySnapshot property = sources.property();
+            UserAccount ownerAccount = sources.owner();
+            UserAccount userAccount = sources.guest();
 
             String propertyIdStr = booking.getPropertyId();
-
-            Map<String, Object> propertyResponse;
-            try {
-                propertyResponse = propertyDatabaseService.getPropertyById(propertyIdStr);
-            } catch (BusinessException e) {
-                throw e;
-            } catch (Exception e) {
-                String errorMessage = e.getMessage();
-                throw new BusinessException("DATABASE_ERROR",
-                        String.format("Error fetching property '%s' from database: %s",
-                                propertyIdStr, errorMessage));
-            }
-
-            if (propertyResponse == null) {
-                throw new BusinessException("PROPERTY_NOT_FOUND",
-                        "Property with ID " + propertyIdStr + " not found in database (null response)");
-            }
-
-            String ownerUserIdStr = propertyDatabaseService.extractOwnerUserId(propertyResponse);
-            String propertyTitle = propertyResponse.containsKey("title") ? propertyResponse.get("title").toString()
-                    : propertyIdStr;
-            Double propertyPrice = propertyDatabaseService.extractDailyPrice(propertyResponse);
-
-            Long ownerId = null;
-            if (ownerUserIdStr != null && !ownerUserIdStr.trim().isEmpty()) {
-                try {
-                    ownerId = Long.parseLong(ownerUserIdStr);
-                } catch (NumberFormatException e) {
-                }
-            }
-
-            UserAccount ownerAccount = null;
-            if (ownerId != null) {
-                ownerAccount = userAccountRepository.findById(ownerId).orElse(null);
-            }
-
-            UserAccount userAccount = userAccountRepository.findById(booking.getUserId()).orElse(null);
+            String propertyTitle = property.title() != null ? property.title() : propertyIdStr;
+            Double propertyPrice = property.dailyPrice();
+            Long ownerId = property.ownerId();
 
             String statusString = booking.getStatus() != null ? booking.getStatus() : "PENDING";
 
@@ -149,7 +166,7 @@ public class PaymentIntentController {
                                 "Property ID: %s, Owner userId from property-service: '%s', Owner ID (Long): %s. " +
                                 "Please ensure: 1) Property owner has set their wallet address in payment-service, " +
                                 "2) userId in property-service matches id in payment-service users table.",
-                        propertyIdStr, ownerUserIdStr, ownerId);
+                        propertyIdStr, property.ownerUserId(), ownerId);
                 throw new BusinessException("OWNER_WALLET_ADDRESS_MISSING", errorMessage);
             }
 
@@ -179,40 +196,18 @@ public class PaymentIntentController {
                     "An error occurred while fetching booking details: " + e.getMessage());
         } finally {
             MDC.clear();
+            replicaLagGuard.release();
         }
     }
 
     @GetMapping("/booking-id")
-    public ResponseEntity<Map<String, Object>> getBookingId() {
-        try {
-            Long lastBookingId = bookingCreatedConsumer.getLastReceivedBookingId();
-
-            if (lastBookingId != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("bookingId", lastBookingId);
-                response.put("status", "success");
-                return ResponseEntity.ok(response);
-            }
-
-            Long bookingId = bookingCreatedConsumer.pollBookingId(5, TimeUnit.SECONDS);
-
-            if (bookingId != null) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("bookingId", bookingId);
-                response.put("status", "success");
-                return ResponseEntity.ok(response);
-            } else {
-                Map<String, Object> response = new HashMap<>();
-                response.put("status", "not_found");
-                response.put("message", "No bookingId received from RabbitMQ yet");
-                return ResponseEntity.status(204).body(response);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return ResponseEntity.status(500).build();
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
+    public DeferredResult<ResponseEntity<Map<String, Object>>> getBookingId(
+            @RequestParam(required = false) Long tenantId) {
+        // Without it the caller could only be handed whichever booking arrived last, possibly another user's
+        if (tenantId == null) {
+            throw new BusinessException("TENANT_ID_REQUIRED", "tenantId is required");
         }
+        return bookingIdDispatcher.await(tenantId);
     }
 
     @GetMapping("/properties/{id}")
@@ -220,45 +215,18 @@ public class PaymentIntentController {
         try {
             MDC.put("propertyId", id);
 
-            Map<String, Object> propertyResponse = propertyDatabaseService.getPropertyById(id);
-
-            if (propertyResponse == null || !propertyResponse.containsKey("id")) {
-                throw new BusinessException("PROPERTY_NOT_FOUND", "Property not found in database: " + id);
-            }
-
-            Long ownerId = null;
-            String ownerUserIdStr = propertyDatabaseService.extractOwnerUserId(propertyResponse);
-            if (ownerUserIdStr != null && !ownerUserIdStr.trim().isEmpty()) {
-                try {
-                    ownerId = Long.parseLong(ownerUserIdStr);
-                } catch (NumberFormatException e) {
-                }
-            }
-
-            Integer maxNegotiationPercent = null;
-            boolean isNegotiable = false;
-            if (propertyResponse.containsKey("maxNegotiationPercent")) {
-                Object negObj = propertyResponse.get("maxNegotiationPercent");
-                if (negObj instanceof Number) {
-                    double negPercent = ((Number) negObj).doubleValue();
-                    maxNegotiationPercent = (int) negPercent;
-                    isNegotiable = negPercent > 0;
-                }
-            } else if (propertyResponse.containsKey("isNegotiable")) {
-                isNegotiable = Boolean.TRUE.equals(propertyResponse.get("isNegotiable"));
-            }
-
-            boolean discountEnabled = propertyResponse.containsKey("discountEnabled") &&
-                    Boolean.TRUE.equals(propertyResponse.get("discountEnabled"));
+            PropertySnapshot property = propertyDatabaseService.getSnapshot(id);
 
-            Double dailyPrice = propertyDatabaseService.extractDailyPrice(propertyResponse);
+            Integer maxNegotiationPercent = property.maxNegotiationPercent();
+            boolean isNegotiable = maxNegotiationPercent != null && maxNegotiationPercent > 0;
+            Double dailyPrice = property.dailyPrice();
 
             PropertyInfoResponse response = PropertyInfoResponse.builder()
                     .id(id)
-                    .ownerId(ownerId)
-                    .pricePerNight(dailyPrice > 0 ? BigDecimal.valueOf(dailyPrice) : null)
+                    .ownerId(property.ownerId())
+                    .pricePerNight(dailyPrice != null && dailyPrice > 0 ? BigDecimal.valueOf(dailyPrice) : null)
                     .maxNegotiationPercent(maxNegotiationPercent)
-                    .discountEnabled(discountEnabled)
+                    .discountEnabled(false)
                     .isNegotiable(isNegotiable)
                     .build();
 
@@ -283,6 +251,8 @@ public class PaymentIntentController {
 
             user.setWalletAddress(request.getWalletAddress());
             userAccountRepository.save(user);
+            entityCacheEvictor.evictUser(user.getId());
+            paymentIntentCache.invalidateUser(user.getId());
 
             return ResponseEntity.ok().build();
         } finally {
@@ -295,72 +265,83 @@ public class PaymentIntentController {
             @RequestBody java.util.Map<String, String> request) {
         try {
             MDC.put("bookingId", String.valueOf(bookingId));
-            String txHash = request.get("txHash");
+            // The intent was created moments ago; a lagging replica may not have it yet
+            replicaLagGuard.pin();
+            if (!EthereumHex.isTxHash(request.get("txHash"))) {
+                throw new BusinessException("INVALID_TX_HASH", "txHash must be a 0x-prefixed 32-byte hex string");
+            }
+            String txHash = EthereumHex.normalize(request.get("txHash"), EthereumHex.TX_HASH_BYTES);
+            String dedupKey = bookingId + ":" + txHash;
+            if (deliveryDeduplicator.isDuplicate(TX_HASH_DEDUP_SCOPE, dedupKey)) {
+                return ResponseEntity.ok().build();
+            }
 
-            TransactionRecord transaction = transactionRepository.findFirstByBookingIdOrderByCreatedAtDesc(bookingId)
-                    .orElseThrow(() -> new BusinessException("TRANSACTION_NOT_FOUND",
-                            "Transaction not found for booking: " + bookingId));
+            TransactionRecord transaction = findIntentTransaction(bookingId, request.get("referenceId"));
 
             transaction.setTxHash(txHash);
             transaction.setStatus(ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum.SUCCESS);
             transactionRepository.save(transaction);
+            expiryScheduler.cancelIntent(transaction.getId());
 
             try {
-                Booking booking = bookingRepository.findById(bookingId)
-                        .orElse(null);
-
-                if (booking != null && ("PENDING_PAYMENT".equals(booking.getStatus()) ||
-                        "PENDING_NEGOTIATION".equals(booking.getStatus()) ||
-                        "PENDING".equals(booking.getStatus()))) {
-                    String previousStatus = booking.getStatus();
-                    booking.setStatus("CONFIRMED");
-                    bookingRepository.save(booking);
-
-                    try {
-                        paymentOrchestrator.cancelOverlappingBookings(bookingId);
-                    } catch (Exception e) {
-                    }
+                Booking booking = RequestLookupMemo.entity(Booking.class, bookingId,
+                        () -> bookingRepository.findById(bookingId)).orElse(null);
 
-                    updateBookingStatusInBookingService(bookingId, "CONFIRMED");
+                if (booking != null && PaymentOrchestrator.isPendingStatus(booking.getStatus())) {
+                    propertyLockManager.withPropertyLock(booking.getPropertyId(),
+                            () -> paymentOrchestrator.confirmBooking(booking, txHash));
                 } else if (booking != null) {
                     if (!"CONFIRMED".equals(booking.getStatus())) {
-                        updateBookingStatusInBookingService(bookingId, "CONFIRMED");
+                        bookingStatusRelay.enqueue(bookingId, "CONFIRMED");
                     }
                 } else {
-                    updateBookingStatusInBookingService(bookingId, "CONFIRMED");
+                    bookingStatusRelay.enqueue(bookingId, "CONFIRMED");
                 }
+            } catch (BusinessException e) {
+                throw e;
             } catch (Exception e) {
                 try {
-                    updateBookingStatusInBookingService(bookingId, "CONFIRMED");
+                    bookingStatusRelay.enqueue(bookingId, "CONFIRMED");
                 } catch (Exception ex) {
                 }
             }
 
+            deliveryDeduplicator.record(TX_HASH_DEDUP_SCOPE, dedupKey);
             return ResponseEntity.ok().build();
         } finally {
             MDC.clear();
+            replicaLagGuard.release();
         }
     }
 
-    private void updateBookingStatusInBookingService(Long bookingId, String status) {
-        try {
-            if (bookingServiceUrl == null || bookingServiceUrl.isEmpty()) {
-                return;
+    // Binds to the intent the client was given
+    private TransactionRecord findIntentTransaction(Long bookingId, String referenceId) {
+        if (referenceId == null || referenceId.isBlank()) {
+            if (!legacyLatestIntentLookup) {
+                throw new BusinessException("REFERENCE_ID_REQUIRED",
+                        "referenceId of the payment intent is required");
             }
+            // Deprecated: guesses the latest intent of the booking, which may not be the one that was paid
+            return transactionRepository.findFirstByBookingIdOrderByCreatedAtDesc(bookingId)
+                    .orElseThrow(() -> new BusinessException("TRANSACTION_NOT_FOUND",
+                            "Transaction not found for booking: " + bookingId));
+        }
 
-            RestTemplate restTemplate = new RestTemplate();
-            org.springframework.http.client.SimpleClientHttpRequestFactory factory = new org.springframework.http.client.SimpleClientHttpRequestFactory();
-            factory.setConnectTimeout(5000);
-            factory.setReadTimeout(5000);
-            restTemplate.setRequestFactory(factory);
-
-            String url = bookingServiceUrl + "/api/bookings/" + bookingId + "/status";
-
-            Map<String, String> statusUpdate = new HashMap<>();
-            statusUpdate.put("status", status);
+        TransactionRecord transaction = transactionRepository.findByReferenceId(parseReferenceId(referenceId))
+                .orElseThrow(() -> new BusinessException("INTENT_NOT_FOUND",
+                        "Payment intent not found: " + referenceId));
+        if (!bookingId.equals(transaction.getBookingId())) {
+            throw new BusinessException("INTENT_BOOKING_MISMATCH",
+                    "Payment intent " + referenceId + " does not belong to booking " + bookingId);
+        }
+        return transaction;
+    }
 
-            restTemplate.put(url, statusUpdate);
-        } catch (Exception e) {
+    private static UUID parseReferenceId(String referenceId) {
+        try {
+            return UUID.fromString(referenceId.trim());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("INVALID_REFERENCE_ID", "referenceId must be a UUID: " + referenceId);
         }
     }
 
@@ -373,7 +354,7 @@ public class PaymentIntentController {
             BigInteger refundAmountWei = new BigInteger(request.getRefundAmountWei());
             BigInteger penaltyAmountWei = new BigInteger(request.getPenaltyAmountWei());
 
-            String txHash = contractService.processReclamationRefund(
+            String txHash = paymentOrchestrator.processReclamationRefund(
                     request.getBookingId(),
                     request.getRecipientAddress(),
                     refundAmountWei,
@@ -423,7 +404,7 @@ public class PaymentIntentController {
             BigInteger refundAmountWei = new BigInteger(request.get("refundAmountWei").toString());
             Boolean refundFromRent = Boolean.valueOf(request.get("refundFromRent").toString());
 
-            String txHash = contractService.processPartialRefund(
+            String txHash = paymentOrchestrator.processPartialRefund(
                     bookingId,
                     recipientAddress,
                     refundAmountWei,
@@ -483,6 +464,18 @@ public class PaymentIntentController {
         }
     }
 
+    private static PaymentIntentResponse toResponse(PaymentOrchestrator.PaymentIntentResponse intent) {
+        return PaymentIntentResponse.builder()
+                .referenceId(intent.getReferenceId())
+                .to(intent.getTo())
+                .value(intent.getValue())
+                .data(intent.getData())
+                .chainId(intent.getChainId())
+                .totalAmountWei(intent.getTotalAmountWei())
+                .rateVersion(intent.getRateVersion())
+                .build();
+    }
+
     @lombok.Data
     private static class ReclamationRefundRequest {
         private Long bookingId;
@@ -21,8 +21,10 @@ public class RootController {
         endpoints.put("health", "/health");
         endpoints.put("booking", "/api/payments/booking/{bookingId}");
         endpoints.put("paymentIntent", "/api/payments/intent");
+        endpoints.put("paymentIntentLookup", "/api/payments/intent/{referenceId}");
         endpoints.put("transaction", "/api/payments/tx/{hash}");
         endpoints.put("walletAddress", "/api/payments/wallet-address");
+        endpoints.put("availability", "/api/payments/properties/{id}/availability");
         
         response.put("endpoints", endpoints);
         return ResponseEntity.ok(response);
@@ -2,6 +2,7 @@ package ma.fstt.paymentservice.api.controller;
 
 import lombok.RequiredArgsConstructor;
 import ma.fstt.paymentservice.api.dto.TxStatusResponse;
+import ma.fstt.paymentservice.domain.converter.EthereumHex;
 import ma.fstt.paymentservice.domain.repository.TransactionRepository;
 import ma.fstt.paymentservice.exception.BusinessException;
 import org.slf4j.MDC;
@@ -20,6 +21,10 @@ public class TxQueryController {
         try {
             MDC.put("txHash", hash);
 
+            if (!EthereumHex.isTxHash(hash)) {
+                throw new BusinessException("INVALID_TX_HASH", "Not a 0x-prefixed 32-byte hex string: " + hash);
+            }
+
             return transactionRepository.findByTxHash(hash)
                     .map(tx -> {
                         String statusString = tx.getStatus() != null ? tx.getStatus().name() : "UNKNOWN";
@@ -1,16 +1,21 @@
 package ma.fstt.paymentservice.api.controller;
 
 import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.core.service.EntityCacheEvictor;
+import ma.fstt.paymentservice.core.service.PenaltyApplier;
 import ma.fstt.paymentservice.domain.entity.UserAccount;
 import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
 import ma.fstt.paymentservice.exception.BusinessException;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/users")
@@ -18,6 +23,8 @@ import java.util.Map;
 public class UserController {
 
     private final UserAccountRepository userAccountRepository;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final PenaltyApplier penaltyApplier;
 
     @GetMapping("/{userId}")
     public ResponseEntity<Map<String, Object>> getUser(@PathVariable Long userId) {
@@ -47,49 +54,30 @@ public class UserController {
     }
 
     @PostMapping("/{userId}/penalty")
-    @Transactional
     public ResponseEntity<Map<String, Object>> addPenaltyPoints(
             @PathVariable Long userId,
             @RequestBody PenaltyPointsRequest request) {
         
         Map<String, Object> response = new HashMap<>();
         try {
-            UserAccount user = userAccountRepository.findById(userId).orElse(null);
+            PenaltyApplier.Result result = penaltyApplier.apply(userId, request.getPenaltyPoints());
             
-            if (user == null) {
+            if (result == null) {
                 response.put("status", "error");
                 response.put("message", "User not found in payment-service database. User ID: " + userId);
                 response.put("errorCode", "USER_NOT_FOUND_IN_PAYMENT_SERVICE");
                 return ResponseEntity.badRequest().body(response);
             }
 
-            int currentScore = user.getScore() != null ? user.getScore() : 100;
-            int penaltyPoints = request.getPenaltyPoints() != null ? request.getPenaltyPoints() : 0;
-            
-            if (penaltyPoints <= 0) {
-                response.put("status", "error");
-                response.put("message", "Invalid penalty points: " + penaltyPoints);
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            int newScore = Math.max(0, currentScore - penaltyPoints);
-            user.setScore(newScore);
-
-            checkAndApplySuspension(user);
-
-            UserAccount savedUser = userAccountRepository.save(user);
-            userAccountRepository.flush();
-            
-            UserAccount verifyUser = userAccountRepository.findById(userId).orElse(null);
-
             response.put("status", "success");
             response.put("message", "Penalty points deducted from score successfully");
             response.put("userId", userId);
-            response.put("previousScore", currentScore);
-            response.put("newScore", newScore);
-            response.put("penaltyPointsDeducted", penaltyPoints);
-            response.put("isSuspended", savedUser.getIsSuspended());
-            response.put("verifiedScore", verifyUser != null ? verifyUser.getScore() : null);
+            response.put("previousScore", result.previousScore());
+            response.put("newScore", result.newScore());
+            response.put("penaltyPointsDeducted", result.pointsDeducted());
+            response.put("isSuspended", result.suspended());
+            // Read back by the same statement that wrote it
+            response.put("verifiedScore", result.newScore());
 
             return ResponseEntity.ok(response);
         } catch (BusinessException e) {
@@ -103,6 +91,59 @@ public class UserController {
         }
     }
 
+    /**
+     * Applies many penalties in one statement. Points for the same user are added up; users
+     * unknown to payment-service are listed under {@code notFound}.
+     */
+    @PostMapping("/penalties")
+    public ResponseEntity<Map<String, Object>> addPenaltyPointsBatch(@RequestBody BatchPenaltyRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            // Validated and merged per user by the applier
+            List<PenaltyApplier.Penalty> penalties = new ArrayList<>();
+            if (request.getPenalties() != null) {
+                for (BatchPenaltyRequest.Penalty penalty : request.getPenalties()) {
+                    penalties.add(penalty == null ? null
+                            : new PenaltyApplier.Penalty(penalty.getUserId(), penalty.getPenaltyPoints()));
+                }
+            }
+            List<PenaltyApplier.Result> applied = penaltyApplier.applyAll(penalties);
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            Set<Long> notFound = new LinkedHashSet<>();
+            for (PenaltyApplier.Penalty penalty : penalties) {
+                notFound.add(penalty.userId());
+            }
+            int requestedUsers = notFound.size();
+            for (PenaltyApplier.Result result : applied) {
+                notFound.remove(result.userId());
+                Map<String, Object> item = new HashMap<>();
+                item.put("userId", result.userId());
+                item.put("previousScore", result.previousScore());
+                item.put("newScore", result.newScore());
+                item.put("penaltyPointsDeducted", result.pointsDeducted());
+                item.put("isSuspended", result.suspended());
+                item.put("suspensionUntil", result.suspensionUntil());
+                results.add(item);
+            }
+
+            response.put("status", "success");
+            response.put("message", results.size() + " of " + requestedUsers + " users penalized");
+            response.put("results", results);
+            response.put("notFound", notFound);
+            return ResponseEntity.ok(response);
+        } catch (BusinessException e) {
+            response.put("status", "error");
+            response.put("errorCode", e.getCode());
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("status", "error");
+            response.put("message", "Failed to add penalty points: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     @PostMapping("/{userId}/suspend")
     public ResponseEntity<Map<String, Object>> suspendUser(
             @PathVariable Long userId,
@@ -121,6 +162,7 @@ public class UserController {
             }
 
             userAccountRepository.save(user);
+            entityCacheEvictor.evictUser(userId);
 
             response.put("status", "success");
             response.put("message", "User suspended successfully");
@@ -151,6 +193,7 @@ public class UserController {
             user.setSuspensionUntil(null);
 
             userAccountRepository.save(user);
+            entityCacheEvictor.evictUser(userId);
 
             response.put("status", "success");
             response.put("message", "User unsuspended successfully");
@@ -168,40 +211,22 @@ public class UserController {
         }
     }
 
-    private void checkAndApplySuspension(UserAccount user) {
-        int score = user.getScore() != null ? user.getScore() : 100;
-        int pointsDeducted = 100 - score;
-
-        if (score <= 74) {
-            user.setIsSuspended(true);
-            user.setSuspensionReason("Score too low (≤74) - " + pointsDeducted + " penalty points deducted");
-            user.setSuspensionUntil(null);
-        } else if (score <= 79) {
-            user.setIsSuspended(true);
-            user.setSuspensionReason("Low score (75-79) - " + pointsDeducted + " penalty points deducted");
-            user.setSuspensionUntil(LocalDateTime.now().plusDays(60));
-        } else if (score <= 84) {
-            user.setIsSuspended(true);
-            user.setSuspensionReason("Low score (80-84) - " + pointsDeducted + " penalty points deducted");
-            user.setSuspensionUntil(LocalDateTime.now().plusDays(30));
-        } else if (score <= 89) {
-            user.setIsSuspended(true);
-            user.setSuspensionReason("Moderate score (85-89) - " + pointsDeducted + " penalty points deducted");
-            user.setSuspensionUntil(LocalDateTime.now().plusDays(7));
-        } else if (score > 89 && user.getIsSuspended() != null && user.getIsSuspended()) {
-            if (user.getSuspensionUntil() != null && LocalDateTime.now().isAfter(user.getSuspensionUntil())) {
-                user.setIsSuspended(false);
-                user.setSuspensionReason(null);
-                user.setSuspensionUntil(null);
-            }
-        }
-    }
-
     @lombok.Data
     private static class PenaltyPointsRequest {
         private Integer penaltyPoints;
     }
 
+    @lombok.Data
+    private static class BatchPenaltyRequest {
+        private List<Penalty> penalties;
+
+        @lombok.Data
+        private static class Penalty {
+            private Long userId;
+            private Integer penaltyPoints;
+        }
+    }
+
     @lombok.Data
     private static class SuspendUserRequest {
         private String reason;
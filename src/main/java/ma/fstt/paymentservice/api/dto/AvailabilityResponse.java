@@ -0,0 +1,21 @@
+package ma.fstt.paymentservice.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResponse {
+    private String propertyId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Boolean available;
+    private List<Long> conflictingBookingIds;
+}
@@ -0,0 +1,20 @@
+package ma.fstt.paymentservice.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One booking of a batch intent request: either {@code intent} or the error {@code code} and {@code message} are set.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentIntentItem {
+    private Long bookingId;
+    private PaymentIntentResponse intent;
+    private String code;
+    private String message;
+}
@@ -0,0 +1,14 @@
+package ma.fstt.paymentservice.api.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchPaymentIntentRequest {
+    // Duplicates are ignored; app.intent-batch.max-size caps the number of distinct bookings
+    @NotEmpty(message = "bookingIds is required")
+    private List<@NotNull(message = "bookingIds must not contain null") Long> bookingIds;
+}
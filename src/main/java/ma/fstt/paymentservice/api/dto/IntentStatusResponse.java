@@ -0,0 +1,23 @@
+package ma.fstt.paymentservice.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntentStatusResponse {
+    private UUID referenceId;
+    private Long bookingId;
+    private String status;
+    private String txHash;
+    private BigDecimal amount;
+    private ZonedDateTime createdAt;
+}
@@ -18,5 +18,6 @@ public class PaymentIntentResponse {
     private String data;
     private Long chainId;
     private String totalAmountWei;
+    private String rateVersion;
 }
 
@@ -2,6 +2,7 @@ package ma.fstt.paymentservice.api.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
 @Data
@@ -10,6 +11,7 @@ public class WalletAddressRequest {
     private Long userId;
     
     @NotBlank(message = "Wallet address is required")
+    @Pattern(regexp = "^\\s*0[xX][0-9a-fA-F]{40}\\s*$", message = "Wallet address must be a 0x-prefixed 20-byte hex string")
     private String walletAddress;
 }
 
@@ -0,0 +1,62 @@
+package ma.fstt.paymentservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import ma.fstt.paymentservice.metrics.QueryTimingListener;
+import ma.fstt.paymentservice.metrics.RepositoryMethodTracker;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the DataSource so every statement is timed by {@link QueryTimingListener}, and tags
+ * statements with the Spring Data repository method that issued them. Replaces show-sql.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.db.instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static BeanPostProcessor queryTimingDataSourcePostProcessor(
+            ObjectProvider<MeterRegistry> registry, Environment environment) {
+        // Read from the Environment: @Value placeholders are not resolved yet for static post-processors
+        long slowThresholdMs = environment.getProperty("app.db.slow-query-threshold-ms", Long.class, 200L);
+        double sampleRate = environment.getProperty("app.db.log-sample-rate", Double.class, 0.001);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new QueryTimingListener(
+                                    registry.getIfAvailable(() -> Metrics.globalRegistry), slowThresholdMs, sampleRate))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryMethodTrackerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(0,
+                                    new RepositoryMethodTracker(repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
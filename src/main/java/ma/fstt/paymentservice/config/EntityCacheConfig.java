@@ -0,0 +1,71 @@
+package ma.fstt.paymentservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import ma.fstt.paymentservice.domain.entity.EntityCacheRegions;
+import ma.fstt.paymentservice.metrics.EntityCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for the rarely-changing users and properties rows, kept in
+ * process by Caffeine behind the JCache API. Both tables are also written by other services,
+ * so each region is bounded by a TTL as well as by size.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.entity-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class EntityCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(
+            @Value("${app.entity-cache.users.max-size:10000}") long usersMaxSize,
+            @Value("${app.entity-cache.users.ttl-seconds:300}") long usersTtlSeconds,
+            @Value("${app.entity-cache.properties.max-size:10000}") long propertiesMaxSize,
+            @Value("${app.entity-cache.properties.ttl-seconds:600}") long propertiesTtlSeconds) {
+        // A manager per context, so test contexts never share cached rows
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager(
+                URI.create("payments-entity-cache-" + System.identityHashCode(this)), getClass().getClassLoader());
+        cacheManager.createCache(EntityCacheRegions.USERS, region(usersMaxSize, usersTtlSeconds));
+        cacheManager.createCache(EntityCacheRegions.PROPERTIES, region(propertiesMaxSize, propertiesTtlSeconds));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheHibernateProperties(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    @Bean
+    public EntityCacheMetrics entityCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return new EntityCacheMetrics(entityManagerFactory, EntityCacheRegions.USERS, EntityCacheRegions.PROPERTIES);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, ttlSeconds)));
+        // Hibernate stores its own disassembled cache entries; copying them again buys nothing
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
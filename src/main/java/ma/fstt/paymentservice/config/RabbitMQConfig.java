@@ -1,12 +1,22 @@
 package ma.fstt.paymentservice.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import ma.fstt.paymentservice.core.messaging.CompactBinaryMessageConverter;
+import ma.fstt.paymentservice.core.messaging.PaymentEventPublisher;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -14,14 +24,57 @@ import org.springframework.context.annotation.Configuration;
 @EnableRabbit
 public class RabbitMQConfig {
 
+    public static final String BOOKING_CREATED_QUEUE = "booking.created";
+    public static final String BOOKING_CREATED_DLX = "booking.created.dlx";
+    public static final String BOOKING_CREATED_DLQ = "booking.created.dlq";
+    public static final String BOOKING_CREATED_LISTENER_FACTORY = "bookingCreatedListenerFactory";
+
+    /**
+     * booking.created is shared with booking-service, which may declare it first, so it is declared
+     * with no arguments: declaring it with different ones fails with PRECONDITION_FAILED. Its dead
+     * lettering is set on the broker by a policy instead, which applies to the existing queue:
+     * <pre>
+     * rabbitmqctl set_policy booking-created-dlx '^booking\.created$' \
+     *     '{"dead-letter-exchange":"booking.created.dlx","dead-letter-routing-key":"booking.created"}' \
+     *     --apply-to queues
+     * </pre>
+     * Without the policy, rejected messages are dropped as before.
+     */
     @Bean
     public Queue bookingCreatedQueue() {
-        return new Queue("booking.created", true);
+        return QueueBuilder.durable(BOOKING_CREATED_QUEUE).build();
+    }
+
+    // Owned by this service, so declared here; the policy above routes rejected messages to them
+    @Bean
+    public DirectExchange bookingCreatedDeadLetterExchange() {
+        return new DirectExchange(BOOKING_CREATED_DLX, true, false);
+    }
+
+    @Bean
+    public Queue bookingCreatedDeadLetterQueue() {
+        return QueueBuilder.durable(BOOKING_CREATED_DLQ).build();
+    }
+
+    @Bean
+    public Binding bookingCreatedDeadLetterBinding() {
+        return BindingBuilder.bind(bookingCreatedDeadLetterQueue())
+                .to(bookingCreatedDeadLetterExchange())
+                .with(BOOKING_CREATED_QUEUE);
     }
 
+    @Bean
+    public TopicExchange paymentEventsExchange() {
+        return new TopicExchange(PaymentEventPublisher.EXCHANGE, true, false);
+    }
+
+    // JSON stays the default; producers can opt into the compact binary codec per message via content type
     @Bean
     public MessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter());
+        converter.addDelegate(CompactBinaryMessageConverter.CONTENT_TYPE, new CompactBinaryMessageConverter());
+        return converter;
     }
 
     @Bean
@@ -41,5 +94,30 @@ public class RabbitMQConfig {
         factory.setMaxConcurrentConsumers(1);
         return factory;
     }
-}
 
+    /**
+     * Batch, manually acked container for booking.created only. Listeners get the raw messages and
+     * convert them themselves, so an unreadable message can be rejected on its own.
+     */
+    @Bean(BOOKING_CREATED_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory bookingCreatedListenerFactory(ConnectionFactory connectionFactory,
+            @Value("${app.rabbitmq.consumer.concurrency:1}") int concurrency,
+            @Value("${app.rabbitmq.consumer.max-concurrency:4}") int maxConcurrency,
+            @Value("${app.rabbitmq.consumer.prefetch:100}") int prefetch,
+            @Value("${app.rabbitmq.consumer.batch-size:50}") int batchSize,
+            @Value("${app.rabbitmq.consumer.receive-timeout-ms:200}") long receiveTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setAutoStartup(true);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        // Listeners receive up to batchSize messages at once and ack each one themselves
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+}
@@ -0,0 +1,111 @@
+package ma.fstt.paymentservice.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether read-only work may use the replica. The replica is skipped while its measured
+ * lag exceeds the limit, and a thread can be pinned to the primary for read-your-writes, e.g.
+ * when reading a booking that was confirmed within the last few seconds.
+ * Without a replica configured this only keeps bookkeeping and never changes routing.
+ * <p>
+ * Recent writes are remembered by this instance only: a read served by another instance within
+ * the read-your-writes window can still go to a lagging replica. Clients that must see their own
+ * write right away need sticky routing to the instance that made it.
+ */
+@Slf4j
+@Component
+public class ReplicaLagGuard {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final Cache<Long, Boolean> recentlyWrittenBookings;
+    private final long maxLagMs;
+
+    private volatile JdbcTemplate replicaJdbc;
+    private volatile String lagQuery;
+    private volatile long replicaLagMs = 0;
+    private volatile boolean replicaReachable = true;
+
+    public ReplicaLagGuard(MeterRegistry registry,
+            @Value("${app.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMs,
+            @Value("${app.datasource.replica.max-lag-ms:1000}") long maxLagMs) {
+        this.maxLagMs = maxLagMs;
+        this.recentlyWrittenBookings = CacheBuilder.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(readYourWritesMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        Gauge.builder("payments_replica_lag_seconds", this, g -> g.replicaLagMs / 1000.0)
+                .description("Last measured replication lag of the read replica")
+                .register(registry);
+    }
+
+    void monitor(DataSource replica, String lagQuery) {
+        this.replicaJdbc = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+    }
+
+    public void recordWrite(Long bookingId) {
+        if (bookingId != null) {
+            recentlyWrittenBookings.put(bookingId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Pins the current thread to the primary if {@code bookingId} was written within the
+     * read-your-writes window. Must be paired with {@link #release()}.
+     */
+    public void pinIfRecentlyWritten(Long bookingId) {
+        if (bookingId != null && recentlyWrittenBookings.getIfPresent(bookingId) != null) {
+            pin();
+        }
+    }
+
+    /**
+     * Pins the current thread to the primary. Must be paired with {@link #release()}.
+     */
+    public void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public void release() {
+        PINNED.remove();
+    }
+
+    public boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    public boolean replicaUsable() {
+        return PINNED.get() == null && replicaReachable && replicaLagMs <= maxLagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-probe-interval-ms:1000}")
+    public void probeLag() {
+        JdbcTemplate jdbc = replicaJdbc;
+        if (jdbc == null) {
+            return;
+        }
+        try {
+            Number lagSeconds = jdbc.queryForObject(lagQuery, Number.class);
+            replicaLagMs = lagSeconds != null ? Math.round(lagSeconds.doubleValue() * 1000) : 0;
+            replicaReachable = true;
+        } catch (Exception e) {
+            if (replicaReachable) {
+                log.warn("Replica lag probe failed, routing reads to primary: {}", e.getMessage());
+            }
+            replicaReachable = false;
+        }
+    }
+}
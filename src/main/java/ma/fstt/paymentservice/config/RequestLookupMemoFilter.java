@@ -0,0 +1,59 @@
+package ma.fstt.paymentservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.fstt.paymentservice.core.service.RequestLookupMemo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link RequestLookupMemo} for each request. With {@code app.lookup-memo.debug-header}
+ * the response reports how many lookups the memo answered; the body is buffered so the header
+ * can still be added once the handler is done, so leave it off in production.
+ */
+@Component
+public class RequestLookupMemoFilter extends OncePerRequestFilter {
+
+    public static final String DEBUG_HEADER = "X-Lookup-Memo-Deduped";
+
+    private final boolean debugHeader;
+
+    public RequestLookupMemoFilter(@Value("${app.lookup-memo.debug-header:false}") boolean debugHeader) {
+        this.debugHeader = debugHeader;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Async results are written during the async dispatch; the buffered body is copied there
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = null;
+        if (debugHeader) {
+            buffered = isAsyncDispatch(request)
+                    ? WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class)
+                    : new ContentCachingResponseWrapper(response);
+        }
+
+        RequestLookupMemo memo = RequestLookupMemo.open();
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            RequestLookupMemo.close();
+            if (buffered != null && !request.isAsyncStarted()) {
+                buffered.setHeader(DEBUG_HEADER, String.valueOf(memo.deduped()));
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+}
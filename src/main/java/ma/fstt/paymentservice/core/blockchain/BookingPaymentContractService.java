@@ -1,5 +1,6 @@
 package ma.fstt.paymentservice.core.blockchain;
 
+import ma.fstt.paymentservice.core.service.NegativeLookupCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
@@ -39,8 +40,14 @@ public class BookingPaymentContractService {
     @Value("${app.web3.private-key:}")
     private String privateKey;
 
+    private final NegativeLookupCache negativeLookupCache;
+
     private Web3j web3j;
 
+    public BookingPaymentContractService(NegativeLookupCache negativeLookupCache) {
+        this.negativeLookupCache = negativeLookupCache;
+    }
+
     private Web3j getWeb3j() {
         if (web3j == null) {
             web3j = Web3j.build(new HttpService(rpcUrl));
@@ -371,7 +378,27 @@ public class BookingPaymentContractService {
         if (contractAddress == null || contractAddress.isEmpty()) {
             return false;
         }
+        if (negativeLookupCache.isKnownOnChain(bookingId)) {
+            return true;
+        }
+        if (negativeLookupCache.isKnownMissing(NegativeLookupCache.ONCHAIN_BOOKING, bookingId)) {
+            return false;
+        }
+
+        Boolean exists = queryBookingExists(bookingId, fromAddress);
+        if (exists == null) {
+            return false;
+        }
+        if (exists) {
+            negativeLookupCache.markOnChain(bookingId);
+        } else {
+            negativeLookupCache.recordMissing(NegativeLookupCache.ONCHAIN_BOOKING, bookingId);
+        }
+        return exists;
+    }
 
+    // null when the node returned an error or nothing decodable; such answers are not cached
+    private Boolean queryBookingExists(Long bookingId, String fromAddress) throws Exception {
         Function function = new Function(
                 "bookingExistsCheck",
                 Arrays.asList(new Uint256(BigInteger.valueOf(bookingId))),
@@ -383,13 +410,13 @@ public class BookingPaymentContractService {
         EthCall response = getWeb3j().ethCall(transaction, DefaultBlockParameterName.LATEST).send();
 
         if (response.hasError()) {
-            return false;
+            return null;
         }
 
         String value = response.getValue();
         List<Type> decoded = FunctionReturnDecoder.decode(value, function.getOutputParameters());
         if (decoded.isEmpty()) {
-            return false;
+            return null;
         }
         return (Boolean) decoded.get(0).getValue();
     }
@@ -1,40 +1,172 @@
 package ma.fstt.paymentservice.core.messaging;
 
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.paymentservice.config.RabbitMQConfig;
+import ma.fstt.paymentservice.core.orchestrator.PaymentOrchestrator;
+import ma.fstt.paymentservice.core.service.BookingAvailabilityIndex;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler;
+import ma.fstt.paymentservice.core.service.NegativeLookupCache;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Batch consumer for booking.created. Each message is acked once it has been processed and
+ * nacked otherwise: requeued on first failure, rejected when it was already redelivered. The
+ * broker dead-letters rejected messages to booking.created.dlq (see {@link RabbitMQConfig}). Messages are converted here, one at a time, so an unreadable message is
+ * rejected straight away without holding up the rest of the batch.
+ * Received booking ids are handed to {@link BookingIdDispatcher} for the waiting tenant.
+ * Bookings already processed within the dedup window are acked without being processed again.
+ */
+@Slf4j
 @Component
 public class BookingCreatedConsumer {
-    private final BlockingQueue<Long> bookingIdQueue = new LinkedBlockingQueue<>();
-    private volatile Long lastReceivedBookingId = null;
+    static final String DEDUP_SCOPE = "booking.created";
+
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final PaymentOrchestrator paymentOrchestrator;
+    private final BookingIdDispatcher bookingIdDispatcher;
+    private final DeliveryDeduplicator deliveryDeduplicator;
+    private final NegativeLookupCache negativeLookupCache;
+    private final ExpiryScheduler expiryScheduler;
+    private final MessageConverter messageConverter;
+
+    private final MeterRegistry registry;
+    private final DistributionSummary batchSizes;
+
+    public BookingCreatedConsumer(BookingAvailabilityIndex bookingAvailabilityIndex,
+            PaymentOrchestrator paymentOrchestrator,
+            BookingIdDispatcher bookingIdDispatcher,
+            DeliveryDeduplicator deliveryDeduplicator,
+            NegativeLookupCache negativeLookupCache,
+            ExpiryScheduler expiryScheduler,
+            @Qualifier("messageConverter") MessageConverter messageConverter,
+            MeterRegistry registry) {
+        this.bookingAvailabilityIndex = bookingAvailabilityIndex;
+        this.paymentOrchestrator = paymentOrchestrator;
+        this.bookingIdDispatcher = bookingIdDispatcher;
+        this.deliveryDeduplicator = deliveryDeduplicator;
+        this.negativeLookupCache = negativeLookupCache;
+        this.expiryScheduler = expiryScheduler;
+        this.messageConverter = messageConverter;
+        this.registry = registry;
+
+        this.batchSizes = DistributionSummary.builder("payments_booking_created_batch_size")
+                .description("Number of booking.created messages per listener batch")
+                .register(registry);
+    }
 
-    @RabbitListener(queues = "booking.created")
-    public void handleBookingCreated(BookingCreatedMessage message) {
-        try {
-            Long bookingId = message.getBookingId();
-            if (bookingId == null) {
-                return;
+    @RabbitListener(queues = RabbitMQConfig.BOOKING_CREATED_QUEUE,
+            containerFactory = RabbitMQConfig.BOOKING_CREATED_LISTENER_FACTORY)
+    public void handleBookingCreated(List<Message> messages, Channel channel) throws IOException {
+        batchSizes.record(messages.size());
+
+        for (Message message : messages) {
+            MessageProperties properties = message.getMessageProperties();
+            long deliveryTag = properties.getDeliveryTag();
+            BookingCreatedMessage payload;
+            try {
+                payload = convert(message);
+            } catch (RuntimeException e) {
+                // Redelivering cannot make it readable
+                channel.basicNack(deliveryTag, false, false);
+                countConsumed("unreadable");
+                log.warn("Rejected unreadable booking.created message {}: {}",
+                        properties.getMessageId(), e.getMessage());
+                continue;
             }
 
-            lastReceivedBookingId = bookingId;
-            bookingIdQueue.offer(bookingId);
-        } catch (Exception e) {
+            Object dedupKey = dedupKey(payload, properties);
+            try {
+                if (dedupKey != null && deliveryDeduplicator.isDuplicate(DEDUP_SCOPE, dedupKey)) {
+                    channel.basicAck(deliveryTag, false);
+                    countConsumed("duplicate");
+                    continue;
+                }
+                process(payload);
+                channel.basicAck(deliveryTag, false);
+                if (dedupKey != null) {
+                    deliveryDeduplicator.record(DEDUP_SCOPE, dedupKey);
+                }
+                countConsumed("processed");
+            } catch (Exception e) {
+                boolean redelivered = Boolean.TRUE.equals(properties.getRedelivered());
+                channel.basicNack(deliveryTag, false, !redelivered);
+                countConsumed(redelivered ? "rejected" : "requeued");
+                log.warn("Failed to process booking.created message (redelivered={}): {}",
+                        redelivered, e.getMessage());
+            }
+        }
+    }
+
+    private BookingCreatedMessage convert(Message message) {
+        // JSON bodies carry no type id from booking-service, so the target type is supplied here
+        message.getMessageProperties().setInferredArgumentType(BookingCreatedMessage.class);
+        Object converted = messageConverter.fromMessage(message);
+        if (converted instanceof BookingCreatedMessage payload) {
+            return payload;
         }
+        throw new MessageConversionException("Expected a booking.created payload, got "
+                + (converted != null ? converted.getClass().getSimpleName() : "null"));
     }
 
-    public Long pollBookingId(long timeout, java.util.concurrent.TimeUnit unit) throws InterruptedException {
-        return bookingIdQueue.poll(timeout, unit);
+    // Producers may resend a booking under a new message id, so the booking id is the stronger key
+    private static Object dedupKey(BookingCreatedMessage payload, MessageProperties properties) {
+        if (payload.getBookingId() != null) {
+            return payload.getBookingId();
+        }
+        return properties.getMessageId();
     }
 
-    public Long getLastReceivedBookingId() {
-        return lastReceivedBookingId;
+    private void process(BookingCreatedMessage message) {
+        Long bookingId = message.getBookingId();
+        if (bookingId == null) {
+            return;
+        }
+
+        // Clients that polled before the booking existed may have cached the miss
+        negativeLookupCache.invalidate(NegativeLookupCache.BOOKING, bookingId);
+
+        if (message.getPropertyId() != null) {
+            bookingAvailabilityIndex.invalidate(String.valueOf(message.getPropertyId()));
+        }
+
+        bookingIdDispatcher.publish(message.getTenantId(), bookingId);
+
+        if (message.getNegotiationExpiresAt() != null) {
+            expiryScheduler.scheduleNegotiation(bookingId, Instant.ofEpochMilli(message.getNegotiationExpiresAt()));
+        }
+
+        // Pre-computation is an optimization only; POST /intent falls back to computing the payload
+        try {
+            paymentOrchestrator.precomputeIntent(
+                    bookingId,
+                    message.getPropertyId() != null ? String.valueOf(message.getPropertyId()) : null,
+                    message.getTenantId(),
+                    message.getFinalRentAmount());
+        } catch (Exception e) {
+            log.debug("Could not pre-compute intent for booking {}: {}", bookingId, e.getMessage());
+        }
     }
 
-    public int getQueueSize() {
-        return bookingIdQueue.size();
+    private void countConsumed(String result) {
+        Counter.builder("payments_booking_created_consumed_total")
+                .description("booking.created messages handled by result")
+                .tag("result", result)
+                .register(registry)
+                .increment();
     }
 
     public static class BookingCreatedMessage {
@@ -45,6 +177,14 @@ public class BookingCreatedConsumer {
         private java.math.BigDecimal finalRentAmount;
         private java.math.BigDecimal depositAmount;
         private String status;
+        /*
+         * Producer contract: optional, epoch millis of the negotiation deadline, sent by
+         * booking-service only for a booking created with a price negotiation already open. It
+         * starts the timer at once; without it, and for negotiations opened or extended after
+         * creation (booking-service sends no message for those), ExpiryScheduler picks the
+         * deadline up from the bookings table within one re-seed interval.
+         */
+        private Long negotiationExpiresAt;
 
         public Long getBookingId() {
             return bookingId;
@@ -101,6 +241,14 @@ public class BookingCreatedConsumer {
         public void setStatus(String status) {
             this.status = status;
         }
+
+        public Long getNegotiationExpiresAt() {
+            return negotiationExpiresAt;
+        }
+
+        public void setNegotiationExpiresAt(Long negotiationExpiresAt) {
+            this.negotiationExpiresAt = negotiationExpiresAt;
+        }
     }
 }
 
@@ -0,0 +1,177 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes booking ids from booking.created to the clients waiting for them, keyed by tenant.
+ * Waiting requests are parked as {@link DeferredResult}s and hold no servlet thread. Ids that
+ * arrive while nobody of that tenant is waiting are queued, so the next request returns at once.
+ * <p>
+ * Each tenant has a mailbox holding both its waiters and its queued ids; registering a waiter
+ * and delivering an id lock the same mailbox, so a waiter can never miss an id published
+ * concurrently. Both are bounded: at most {@code queue-capacity} ids per tenant (the oldest is
+ * dropped) and {@code max-tenants} mailboxes, idle ones expiring after the undelivered TTL.
+ */
+@Component
+public class BookingIdDispatcher {
+
+    private final Cache<Long, Mailbox> mailboxes;
+    private final long timeoutMs;
+    private final int queueCapacity;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter droppedBookingIds;
+
+    public BookingIdDispatcher(MeterRegistry registry,
+            @Value("${app.booking-id.wait-timeout-ms:30000}") long timeoutMs,
+            @Value("${app.booking-id.undelivered-ttl-seconds:120}") long undeliveredTtlSeconds,
+            @Value("${app.booking-id.max-tenants:10000}") long maxTenants,
+            @Value("${app.booking-id.queue-capacity:20}") int queueCapacity) {
+        this.timeoutMs = timeoutMs;
+        this.queueCapacity = queueCapacity;
+        this.mailboxes = CacheBuilder.newBuilder()
+                .maximumSize(maxTenants)
+                .expireAfterAccess(undeliveredTtlSeconds, TimeUnit.SECONDS)
+                .removalListener((RemovalNotification<Long, Mailbox> removed) -> removed.getValue().close())
+                .build();
+
+        this.droppedBookingIds = Counter.builder("payments_booking_id_queue_dropped_total")
+                .description("Booking ids dropped undelivered: queue full, mailbox evicted or no tenant")
+                .register(registry);
+        Gauge.builder("payments_booking_id_queue_depth", queued, AtomicInteger::get)
+                .description("Booking ids queued for tenants that are not waiting yet")
+                .register(registry);
+        Gauge.builder("payments_booking_id_waiters", waiting, AtomicInteger::get)
+                .description("Requests currently waiting for a booking id")
+                .register(registry);
+    }
+
+    public DeferredResult<ResponseEntity<Map<String, Object>>> await(Long tenantId) {
+        Objects.requireNonNull(tenantId, "tenantId");
+        DeferredResult<ResponseEntity<Map<String, Object>>> result = new DeferredResult<>(timeoutMs);
+        result.onTimeout(() -> result.setResult(notFound()));
+
+        while (true) {
+            Mailbox mailbox = mailbox(tenantId);
+            synchronized (mailbox) {
+                if (mailbox.closed) {
+                    continue;
+                }
+                Long pending = mailbox.ids.pollFirst();
+                if (pending != null) {
+                    queued.decrementAndGet();
+                    result.setResult(found(pending));
+                    return result;
+                }
+                mailbox.waiters.add(result);
+                waiting.incrementAndGet();
+            }
+            result.onCompletion(() -> mailbox.removeWaiter(result));
+            return result;
+        }
+    }
+
+    /**
+     * Completes the tenant's waiting requests with {@code bookingId}, or queues it when none is
+     * waiting. A booking without a tenant cannot be routed to anyone and is dropped.
+     */
+    public void publish(Long tenantId, Long bookingId) {
+        if (tenantId == null) {
+            droppedBookingIds.increment();
+            return;
+        }
+        while (true) {
+            Mailbox mailbox = mailbox(tenantId);
+            synchronized (mailbox) {
+                if (mailbox.closed) {
+                    continue;
+                }
+                boolean delivered = false;
+                for (DeferredResult<ResponseEntity<Map<String, Object>>> waiter : mailbox.drainWaiters()) {
+                    delivered |= waiter.setResult(found(bookingId));
+                }
+                if (!delivered) {
+                    // Every waiter had already timed out, or there was none; keep the id for the next request
+                    if (mailbox.ids.size() >= queueCapacity) {
+                        mailbox.ids.pollFirst();
+                        queued.decrementAndGet();
+                        droppedBookingIds.increment();
+                    }
+                    mailbox.ids.addLast(bookingId);
+                    queued.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private Mailbox mailbox(Long tenantId) {
+        return mailboxes.asMap().computeIfAbsent(tenantId, k -> new Mailbox());
+    }
+
+    static ResponseEntity<Map<String, Object>> found(Long bookingId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("bookingId", bookingId);
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    static ResponseEntity<Map<String, Object>> notFound() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "not_found");
+        response.put("message", "No bookingId received from RabbitMQ yet");
+        return ResponseEntity.status(204).body(response);
+    }
+
+    private final class Mailbox {
+        private final Deque<Long> ids = new ArrayDeque<>();
+        private final Set<DeferredResult<ResponseEntity<Map<String, Object>>>> waiters = new LinkedHashSet<>();
+        private boolean closed;
+
+        synchronized void removeWaiter(DeferredResult<ResponseEntity<Map<String, Object>>> waiter) {
+            if (waiters.remove(waiter)) {
+                waiting.decrementAndGet();
+            }
+        }
+
+        // Callers hold the mailbox lock
+        List<DeferredResult<ResponseEntity<Map<String, Object>>>> drainWaiters() {
+            List<DeferredResult<ResponseEntity<Map<String, Object>>>> drained = new ArrayList<>(waiters);
+            waiting.addAndGet(-drained.size());
+            waiters.clear();
+            return drained;
+        }
+
+        // Evicted or expired: later calls get a fresh mailbox, current waiters are told to ask again
+        synchronized void close() {
+            closed = true;
+            queued.addAndGet(-ids.size());
+            droppedBookingIds.increment(ids.size());
+            ids.clear();
+            for (DeferredResult<ResponseEntity<Map<String, Object>>> waiter : drainWaiters()) {
+                waiter.setResult(notFound());
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.paymentservice.domain.entity.BookingStatusOutbox;
+import ma.fstt.paymentservice.domain.entity.enums.OutboxStateEnum;
+import ma.fstt.paymentservice.domain.repository.BookingStatusOutboxRepository;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactional outbox for booking status propagation to booking-service.
+ * {@link #enqueue} joins the caller's transaction, so the update is only visible once the local
+ * status change commits. {@link #relayDue} drains due rows in batches over a pooled client and
+ * reschedules failures with exponential backoff.
+ * <p>
+ * The relay runs on its own thread, so slow booking-service calls never hold up the shared
+ * {@code @Scheduled} jobs. Each batch is claimed with {@code FOR UPDATE SKIP LOCKED} and leased
+ * for {@code claim-ttl-ms}, so several instances drain disjoint rows; a lease that runs out (the
+ * instance died mid-batch) makes the row due again.
+ */
+@Slf4j
+@Component
+public class BookingStatusRelay {
+
+    private final BookingStatusOutboxRepository outboxRepository;
+    private final PaymentsMetrics paymentsMetrics;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String bookingServiceUrl;
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    @Value("${app.booking-outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.booking-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.booking-outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.booking-outbox.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${app.booking-outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${app.booking-outbox.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${app.booking-outbox.claim-ttl-ms:60000}")
+    private long claimTtlMs;
+
+    public BookingStatusRelay(BookingStatusOutboxRepository outboxRepository,
+            PaymentsMetrics paymentsMetrics,
+            HttpClient httpClient,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.booking-service.url:http://localhost:8083}") String bookingServiceUrl,
+            @Value("${app.booking-outbox.read-timeout-ms:5000}") long readTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.paymentsMetrics = paymentsMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookingServiceUrl = bookingServiceUrl;
+
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        this.restTemplate = new RestTemplate(factory);
+    }
+
+    // One upsert, so two concurrent enqueues for the same booking cannot both try to insert the row
+    @Transactional
+    public void enqueue(Long bookingId, String status) {
+        if (bookingId == null || bookingServiceUrl == null || bookingServiceUrl.isEmpty()) {
+            return;
+        }
+        outboxRepository.upsertPending(bookingId, status, Instant.now());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (!enabled || bookingServiceUrl == null || bookingServiceUrl.isEmpty()) {
+            return;
+        }
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("booking-outbox-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::relayDue, Duration.ofMillis(pollIntervalMs));
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdown();
+    }
+
+    public void relayDue() {
+        if (!enabled || bookingServiceUrl == null || bookingServiceUrl.isEmpty()) {
+            return;
+        }
+
+        List<BookingStatusOutbox> batch;
+        do {
+            batch = claimDue();
+            int rescheduled = 0;
+            for (BookingStatusOutbox row : batch) {
+                if (!deliver(row)) {
+                    rescheduled++;
+                }
+            }
+            // Stop draining once the batch is mostly failures; those rows are backed off anyway
+            if (rescheduled * 2 > batch.size()) {
+                break;
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    // Committed before any call is made, so the row locks are held only for the claim itself
+    private List<BookingStatusOutbox> claimDue() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<BookingStatusOutbox> due = outboxRepository.findDue(OutboxStateEnum.PENDING, now,
+                    PageRequest.of(0, batchSize));
+            for (BookingStatusOutbox row : due) {
+                row.setNextAttemptAt(now.plusMillis(claimTtlMs));
+            }
+            // Flushing bumps the versions, which the delivery then deletes or reschedules against
+            return outboxRepository.saveAllAndFlush(due);
+        });
+    }
+
+    private boolean deliver(BookingStatusOutbox row) {
+        String url = bookingServiceUrl + "/api/bookings/" + row.getBookingId() + "/status";
+        try {
+            restTemplate.put(url, Map.of("status", row.getStatus()));
+            outboxRepository.deleteDelivered(row.getId(), row.getVersion());
+            paymentsMetrics.incrementOutboxDelivery("delivered");
+            return true;
+        } catch (RestClientException e) {
+            reschedule(row, e);
+            return false;
+        }
+    }
+
+    private void reschedule(BookingStatusOutbox row, RestClientException error) {
+        int attempts = row.getAttempts() + 1;
+        row.setAttempts(attempts);
+        row.setLastError(error.getMessage());
+
+        if (attempts >= maxAttempts) {
+            row.setState(OutboxStateEnum.FAILED);
+            paymentsMetrics.incrementOutboxDelivery("failed");
+            log.error("Giving up on booking {} status {} after {} attempts: {}",
+                    row.getBookingId(), row.getStatus(), attempts, error.getMessage());
+        } else {
+            long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+            row.setNextAttemptAt(Instant.now().plusMillis(backoff));
+            paymentsMetrics.incrementOutboxDelivery("retried");
+            log.warn("Booking {} status {} not delivered (attempt {}), retrying in {} ms: {}",
+                    row.getBookingId(), row.getStatus(), attempts, backoff, error.getMessage());
+        }
+
+        try {
+            outboxRepository.save(row);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // A newer status was enqueued meanwhile and reset the row; it will be picked up as-is
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import ma.fstt.paymentservice.core.messaging.BookingCreatedConsumer.BookingCreatedMessage;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Compact binary codec for high-volume topics, selected by the {@value #CONTENT_TYPE} content type.
+ * <p>
+ * Layout: {@code version:u8, schema:u8, presence:u8} followed by the present fields in declaration
+ * order. Longs are unsigned LEB128 varints (ZigZag for scales), strings are varint length + UTF-8 and
+ * decimals are scale + two's-complement unscaled bytes. Hashes, addresses, UUIDs and wei amounts in
+ * payment events use their binary form when lossless. Absent (null) fields cost one bit.
+ */
+public class CompactBinaryMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-payments-binary";
+
+    private static final int VERSION = 1;
+    private static final int SCHEMA_BOOKING_CREATED = 1;
+    private static final int SCHEMA_PAYMENT_EVENT = 2;
+
+    private static final int TOKEN_UTF8 = 0;
+    private static final int TOKEN_HEX = 1;
+    private static final int TOKEN_UUID = 2;
+    private static final int TOKEN_INTEGER = 3;
+    private static final Pattern LOWER_HEX = Pattern.compile("0x(?:[0-9a-f]{2})+");
+    private static final Pattern LOWER_UUID =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final Pattern DECIMAL_INTEGER = Pattern.compile("0|[1-9][0-9]{0,77}");
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(VERSION);
+        if (object instanceof BookingCreatedMessage message) {
+            out.write(SCHEMA_BOOKING_CREATED);
+            writeBookingCreated(out, message);
+        } else if (object instanceof PaymentEvent event) {
+            out.write(SCHEMA_PAYMENT_EVENT);
+            writePaymentEvent(out, event);
+        } else {
+            throw new MessageConversionException("No binary schema for " + object.getClass().getName());
+        }
+
+        byte[] body = out.toByteArray();
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        InputStream in = new ByteArrayInputStream(message.getBody());
+        try {
+            int version = in.read();
+            if (version != VERSION) {
+                throw new MessageConversionException("Unsupported binary payload version: " + version);
+            }
+            int schema = in.read();
+            return switch (schema) {
+                case SCHEMA_BOOKING_CREATED -> readBookingCreated(in);
+                case SCHEMA_PAYMENT_EVENT -> readPaymentEvent(in);
+                default -> throw new MessageConversionException("Unknown binary schema id: " + schema);
+            };
+        } catch (IOException e) {
+            throw new MessageConversionException("Malformed binary payload", e);
+        }
+    }
+
+    private static void writeBookingCreated(ByteArrayOutputStream out, BookingCreatedMessage m) {
+        out.write(presence(m.getBookingId(), m.getTenantId(), m.getOwnerId(), m.getPropertyId(),
+                m.getFinalRentAmount(), m.getDepositAmount(), m.getStatus(), m.getNegotiationExpiresAt()));
+        writeLong(out, m.getBookingId());
+        writeLong(out, m.getTenantId());
+        writeLong(out, m.getOwnerId());
+        writeLong(out, m.getPropertyId());
+        writeDecimal(out, m.getFinalRentAmount());
+        writeDecimal(out, m.getDepositAmount());
+        writeString(out, m.getStatus());
+        writeLong(out, m.getNegotiationExpiresAt());
+    }
+
+    private static BookingCreatedMessage readBookingCreated(InputStream in) throws IOException {
+        int presence = readByte(in);
+        BookingCreatedMessage m = new BookingCreatedMessage();
+        if (isSet(presence, 0)) {
+            m.setBookingId(readVarLong(in));
+        }
+        if (isSet(presence, 1)) {
+            m.setTenantId(readVarLong(in));
+        }
+        if (isSet(presence, 2)) {
+            m.setOwnerId(readVarLong(in));
+        }
+        if (isSet(presence, 3)) {
+            m.setPropertyId(readVarLong(in));
+        }
+        if (isSet(presence, 4)) {
+            m.setFinalRentAmount(readDecimal(in));
+        }
+        if (isSet(presence, 5)) {
+            m.setDepositAmount(readDecimal(in));
+        }
+        if (isSet(presence, 6)) {
+            m.setStatus(readString(in));
+        }
+        if (isSet(presence, 7)) {
+            m.setNegotiationExpiresAt(readVarLong(in));
+        }
+        return m;
+    }
+
+    private static void writePaymentEvent(ByteArrayOutputStream out, PaymentEvent e) {
+        out.write(presence(e.getEventId(), e.getEventType(), e.getBookingId(), e.getTxHash(),
+                e.getAmountWei(), e.getRecipientAddress(), e.getOccurredAt()));
+        writeToken(out, e.getEventId());
+        writeString(out, e.getEventType());
+        writeLong(out, e.getBookingId());
+        writeToken(out, e.getTxHash());
+        writeToken(out, e.getAmountWei());
+        writeToken(out, e.getRecipientAddress());
+        writeLong(out, e.getOccurredAt());
+    }
+
+    private static PaymentEvent readPaymentEvent(InputStream in) throws IOException {
+        int presence = readByte(in);
+        PaymentEvent e = new PaymentEvent();
+        if (isSet(presence, 0)) {
+            e.setEventId(readToken(in));
+        }
+        if (isSet(presence, 1)) {
+            e.setEventType(readString(in));
+        }
+        if (isSet(presence, 2)) {
+            e.setBookingId(readVarLong(in));
+        }
+        if (isSet(presence, 3)) {
+            e.setTxHash(readToken(in));
+        }
+        if (isSet(presence, 4)) {
+            e.setAmountWei(readToken(in));
+        }
+        if (isSet(presence, 5)) {
+            e.setRecipientAddress(readToken(in));
+        }
+        if (isSet(presence, 6)) {
+            e.setOccurredAt(readVarLong(in));
+        }
+        return e;
+    }
+
+    private static int presence(Object... fields) {
+        int bits = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                bits |= 1 << i;
+            }
+        }
+        return bits;
+    }
+
+    private static boolean isSet(int presence, int bit) {
+        return (presence & (1 << bit)) != 0;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, Long value) {
+        if (value != null) {
+            writeVarLong(out, value);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new MessageConversionException("Varint too long");
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(readBytes(in, (int) readVarLong(in)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Strings that are ids, hashes or amounts are stored in their binary form when that round-trips
+     * exactly: header varint {@code length << 2 | kind} with kind 0 = UTF-8, 1 = lowercase 0x-hex,
+     * 2 = lowercase UUID, 3 = non-negative decimal integer.
+     */
+    private static void writeToken(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            return;
+        }
+        byte[] bytes;
+        int kind;
+        if (LOWER_HEX.matcher(value).matches()) {
+            kind = TOKEN_HEX;
+            bytes = HexFormat.of().parseHex(value, 2, value.length());
+        } else if (LOWER_UUID.matcher(value).matches()) {
+            kind = TOKEN_UUID;
+            UUID uuid = UUID.fromString(value);
+            bytes = ByteBuffer.allocate(16)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits())
+                    .array();
+        } else if (DECIMAL_INTEGER.matcher(value).matches()) {
+            kind = TOKEN_INTEGER;
+            bytes = new BigInteger(value).toByteArray();
+        } else {
+            kind = TOKEN_UTF8;
+            bytes = value.getBytes(StandardCharsets.UTF_8);
+        }
+        writeVarLong(out, ((long) bytes.length << 2) | kind);
+        out.writeBytes(bytes);
+    }
+
+    private static String readToken(InputStream in) throws IOException {
+        long header = readVarLong(in);
+        byte[] bytes = readBytes(in, (int) (header >>> 2));
+        return switch ((int) (header & 0x3)) {
+            case TOKEN_HEX -> "0x" + HexFormat.of().formatHex(bytes);
+            case TOKEN_UUID -> {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                yield new UUID(buffer.getLong(), buffer.getLong()).toString();
+            }
+            case TOKEN_INTEGER -> new BigInteger(bytes).toString();
+            default -> new String(bytes, StandardCharsets.UTF_8);
+        };
+    }
+
+    private static void writeDecimal(ByteArrayOutputStream out, BigDecimal value) {
+        if (value != null) {
+            int scale = value.scale();
+            writeVarLong(out, (scale << 1) ^ (scale >> 31));
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeVarLong(out, unscaled.length);
+            out.writeBytes(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(InputStream in) throws IOException {
+        int zigzag = (int) readVarLong(in);
+        int scale = (zigzag >>> 1) ^ -(zigzag & 1);
+        byte[] unscaled = readBytes(in, (int) readVarLong(in));
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new MessageConversionException("Truncated binary payload");
+        }
+        return b;
+    }
+
+    private static byte[] readBytes(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new MessageConversionException("Truncated binary payload");
+        }
+        return bytes;
+    }
+}
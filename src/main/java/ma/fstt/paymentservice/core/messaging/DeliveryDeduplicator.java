@@ -0,0 +1,138 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recently completed deliveries (booking.created messages, tx-hash updates) so that
+ * redeliveries and client retries can be acknowledged without redoing the work.
+ * Two rotating Bloom filter generations answer most "never seen" lookups without touching the
+ * exact, size-bounded LRU that confirms a duplicate. Keys are forgotten after one to two windows.
+ */
+@Component
+public class DeliveryDeduplicator {
+
+    private final long windowMs;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final Cache<String, Boolean> recent;
+    private final LongSupplier clock;
+
+    private volatile BloomFilter<CharSequence> current;
+    private volatile BloomFilter<CharSequence> previous;
+    private volatile long rotatedAt;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Counter bloomFalsePositives;
+
+    @Autowired
+    public DeliveryDeduplicator(MeterRegistry registry,
+            @Value("${app.dedup.window-seconds:600}") long windowSeconds,
+            @Value("${app.dedup.expected-insertions:100000}") int expectedInsertions,
+            @Value("${app.dedup.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.dedup.max-entries:50000}") long maxEntries) {
+        this(registry, windowSeconds, expectedInsertions, falsePositiveRate, maxEntries, System::currentTimeMillis);
+    }
+
+    DeliveryDeduplicator(MeterRegistry registry, long windowSeconds, int expectedInsertions,
+            double falsePositiveRate, long maxEntries, LongSupplier clock) {
+        this.windowMs = TimeUnit.SECONDS.toMillis(windowSeconds);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.clock = clock;
+        this.recent = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(2 * windowMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.current = newFilter();
+        this.previous = newFilter();
+        this.rotatedAt = clock.getAsLong();
+
+        FunctionCounter.builder("payments_dedup_checks_total", hits, AtomicLong::get)
+                .description("Deliveries checked for duplicates by result")
+                .tag("result", "duplicate")
+                .register(registry);
+        FunctionCounter.builder("payments_dedup_checks_total", misses, AtomicLong::get)
+                .description("Deliveries checked for duplicates by result")
+                .tag("result", "new")
+                .register(registry);
+        Gauge.builder("payments_dedup_hit_ratio", this, DeliveryDeduplicator::hitRatio)
+                .description("Share of checked deliveries that were duplicates")
+                .register(registry);
+        this.bloomFalsePositives = Counter.builder("payments_dedup_bloom_false_positives_total")
+                .description("Bloom filter matches not confirmed by the exact LRU")
+                .register(registry);
+    }
+
+    /**
+     * Returns true when the same key was recorded within the dedup window. Counts towards the
+     * hit rate, so call it once per delivery.
+     */
+    public boolean isDuplicate(String scope, Object key) {
+        String token = token(scope, key);
+        rotateIfDue();
+
+        boolean duplicate = false;
+        if (current.mightContain(token) || previous.mightContain(token)) {
+            duplicate = recent.getIfPresent(token) != null;
+            if (!duplicate) {
+                bloomFalsePositives.increment();
+            }
+        }
+        (duplicate ? hits : misses).incrementAndGet();
+        return duplicate;
+    }
+
+    /**
+     * Records a key once its work has completed, so failed attempts remain retryable.
+     */
+    public void record(String scope, Object key) {
+        String token = token(scope, key);
+        rotateIfDue();
+        recent.put(token, Boolean.TRUE);
+        current.put(token);
+    }
+
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private void rotateIfDue() {
+        long now = clock.getAsLong();
+        if (now - rotatedAt < windowMs) {
+            return;
+        }
+        synchronized (this) {
+            if (now - rotatedAt >= windowMs) {
+                previous = current;
+                current = newFilter();
+                rotatedAt = now;
+            }
+        }
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveRate);
+    }
+
+    private static String token(String scope, Object key) {
+        return scope + ':' + key;
+    }
+}
@@ -0,0 +1,24 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEvent {
+    public static final String PAYMENT_CONFIRMED = "payment.confirmed";
+    public static final String BOOKING_COMPLETED = "booking.completed";
+    public static final String REFUND_PROCESSED = "refund.processed";
+
+    private String eventId;
+    private String eventType; // also used as routing key
+    private Long bookingId;
+    private String txHash;
+    private String amountWei;
+    private String recipientAddress;
+    private Long occurredAt; // epoch millis
+}
@@ -0,0 +1,226 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes payment lifecycle events to the payments.events exchange.
+ * Callers only enqueue into a small bounded buffer and never wait on the broker. A background
+ * sender publishes the buffer in batches and waits for the publisher confirms of a whole batch at
+ * once; nacked or unconfirmed events are re-buffered up to {@code max-attempts} times. When a
+ * send fails midway, only the events from the failed one onward are re-buffered; those already
+ * handed to the broker are settled by their own confirms, so none is published twice.
+ * Events are JSON unless {@code app.events.codec=binary} selects {@link CompactBinaryMessageConverter}.
+ */
+@Slf4j
+@Component
+public class PaymentEventPublisher {
+
+    public static final String EXCHANGE = "payments.events";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry registry;
+    private final BlockingQueue<PendingEvent> buffer;
+    private final MessageConverter eventConverter;
+
+    @Value("${app.events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.events.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${app.events.max-attempts:5}")
+    private int maxAttempts;
+
+    private volatile boolean running;
+    private Thread sender;
+
+    public PaymentEventPublisher(RabbitTemplate rabbitTemplate, MeterRegistry registry,
+            @Value("${app.events.buffer-capacity:10000}") int bufferCapacity,
+            @Value("${app.events.codec:json}") String codec) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.registry = registry;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.eventConverter = "binary".equalsIgnoreCase(codec)
+                ? new CompactBinaryMessageConverter()
+                : new Jackson2JsonMessageConverter();
+
+        Gauge.builder("payments_events_buffered", buffer, BlockingQueue::size)
+                .description("Payment events waiting to be published")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        sender = new Thread(this::sendLoop, "payment-event-publisher");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (sender != null) {
+            sender.join(confirmTimeoutMs);
+        }
+    }
+
+    /**
+     * Publishes once the surrounding transaction commits, or immediately if there is none.
+     */
+    public void publishAfterCommit(PaymentEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    public void publish(PaymentEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getEventId() == null) {
+            event.setEventId(UUID.randomUUID().toString());
+        }
+        if (event.getOccurredAt() == null) {
+            event.setOccurredAt(System.currentTimeMillis());
+        }
+        if (!buffer.offer(new PendingEvent(event, 0))) {
+            count(event.getEventType(), "dropped");
+            log.warn("Payment event buffer full, dropping {} for booking {}", event.getEventType(), event.getBookingId());
+        }
+    }
+
+    private void sendLoop() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingEvent first = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                if (!sendBatch(batch)) {
+                    sleepQuietly(confirmTimeoutMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Not a send failure (those are handled per event), so which events went out is unknown
+                log.error("Payment event sender failed on a batch of {}: {}", batch.size(), e.getMessage(), e);
+                sleepQuietly(confirmTimeoutMs);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} when a send failed; that event and the rest of the batch are re-buffered
+     */
+    private boolean sendBatch(List<PendingEvent> batch) throws InterruptedException {
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        for (PendingEvent pending : batch) {
+            CorrelationData correlation = new CorrelationData(pending.event().getEventId());
+            try {
+                Message message = eventConverter.toMessage(pending.event(), new MessageProperties());
+                rabbitTemplate.send(EXCHANGE, pending.event().getEventType(), message, correlation);
+            } catch (RuntimeException e) {
+                log.warn("Publishing payment events failed after {} of {}: {}",
+                        confirms.size(), batch.size(), e.getMessage());
+                break;
+            }
+            confirms.add(correlation);
+        }
+        boolean sentAll = confirms.size() == batch.size();
+        batch.subList(confirms.size(), batch.size()).forEach(this::retryOrDrop);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (int i = 0; i < confirms.size(); i++) {
+            PendingEvent pending = batch.get(i);
+            boolean acked;
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                acked = confirms.get(i).getFuture().get(remaining, TimeUnit.NANOSECONDS).isAck();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                acked = false;
+            }
+
+            if (acked) {
+                count(pending.event().getEventType(), "confirmed");
+            } else {
+                retryOrDrop(pending);
+            }
+        }
+        return sentAll;
+    }
+
+    private void retryOrDrop(PendingEvent pending) {
+        int attempts = pending.attempts() + 1;
+        if (attempts < maxAttempts && buffer.offer(new PendingEvent(pending.event(), attempts))) {
+            count(pending.event().getEventType(), "retried");
+        } else {
+            count(pending.event().getEventType(), "dropped");
+            log.error("Dropping {} for booking {} after {} attempts",
+                    pending.event().getEventType(), pending.event().getBookingId(), attempts);
+        }
+    }
+
+    private void count(String eventType, String result) {
+        Counter.builder("payments_events_published_total")
+                .description("Payment events by type and publish result")
+                .tag("type", eventType)
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record PendingEvent(PaymentEvent event, int attempts) {
+    }
+}
@@ -1,9 +1,21 @@
 package ma.fstt.paymentservice.core.orchestrator;
 
 import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.config.ReplicaLagGuard;
 import ma.fstt.paymentservice.api.dto.PaymentIntentRequest;
 import ma.fstt.paymentservice.core.blockchain.BookingPaymentContractService;
+import ma.fstt.paymentservice.core.messaging.BookingStatusRelay;
+import ma.fstt.paymentservice.core.messaging.PaymentEvent;
+import ma.fstt.paymentservice.core.messaging.PaymentEventPublisher;
+import ma.fstt.paymentservice.core.rates.ExchangeRates;
+import ma.fstt.paymentservice.core.rates.RateSnapshot;
+import ma.fstt.paymentservice.core.service.BookingAvailabilityIndex;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler;
+import ma.fstt.paymentservice.core.service.PaymentIntentCache;
+import ma.fstt.paymentservice.core.service.PaymentIntentCache.PrecomputedIntent;
+import ma.fstt.paymentservice.core.service.NegativeLookupCache;
 import ma.fstt.paymentservice.core.service.PropertyDatabaseService;
+import ma.fstt.paymentservice.core.service.RequestLookupMemo;
 import ma.fstt.paymentservice.domain.entity.Booking;
 import ma.fstt.paymentservice.domain.entity.TransactionRecord;
 import ma.fstt.paymentservice.domain.repository.BookingRepository;
@@ -16,14 +28,23 @@ import org.springframework.transaction.annotation.Transactional;
 
 import ma.fstt.paymentservice.domain.entity.UserAccount;
 import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
+import ma.fstt.paymentservice.domain.repository.PropertySnapshot;
 import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -34,12 +55,24 @@ public class PaymentOrchestrator {
     private final UserAccountRepository userAccountRepository;
     private final BookingPaymentContractService contractService;
     private final PropertyDatabaseService propertyDatabaseService;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final BookingStatusRelay bookingStatusRelay;
+    private final PaymentIntentCache paymentIntentCache;
+    private final PaymentEventPublisher paymentEventPublisher;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final NegativeLookupCache negativeLookupCache;
+    private final ExchangeRates exchangeRates;
+    private final ExpiryScheduler expiryScheduler;
 
     @Value("${app.web3.contract-address:}")
     private String contractAddress;
 
+    @Value("${app.intent-batch.max-size:100}")
+    private int maxBatchSize;
+
     private static final Long CHAIN_ID = 31337L;
-    private static final BigDecimal MAD_TO_ETH_RATE = BigDecimal.valueOf(35000);
+
+    private static final List<String> PENDING_STATUSES = List.of("PENDING_PAYMENT", "PENDING_NEGOTIATION", "PENDING");
 
     @Transactional
     public PaymentIntentResponse createPaymentIntent(PaymentIntentRequest request) {
@@ -51,143 +84,271 @@ public class PaymentOrchestrator {
             Long bookingId = request.getBookingId();
             MDC.put("bookingId", String.valueOf(bookingId));
 
-            Booking booking = bookingRepository.findById(bookingId)
+            // Clients poll this before booking.created arrives; repeat misses are answered locally
+            Booking booking = negativeLookupCache.find(NegativeLookupCache.BOOKING, bookingId, () -> findBooking(bookingId))
                     .orElseThrow(() -> new BusinessException("BOOKING_NOT_FOUND", "Booking not found: " + bookingId));
 
             if (booking.getPropertyId() == null) {
                 throw new BusinessException("PROPERTY_NOT_FOUND", "Booking has no property assigned");
             }
 
-            String propertyIdStr = booking.getPropertyId();
-            Map<String, Object> propertyResponse = propertyDatabaseService.getPropertyById(propertyIdStr);
+            RateSnapshot rate = exchangeRates.current();
+            PropertySnapshot property = propertyDatabaseService.getSnapshot(booking.getPropertyId());
+            PrecomputedIntent intent = priceIntent(rate, booking, property, this::findUser);
+
+            return createAndPersistTx(bookingId, booking.getUserId(), intent);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Creates intents for several bookings at once. Bookings, properties and users are each loaded
+     * with one IN query, and all transactions are inserted in one JDBC batch. A booking that cannot
+     * be paid yields an item carrying the error instead of failing the whole batch.
+     */
+    @Transactional
+    public List<BatchIntentItem> createPaymentIntents(List<Long> bookingIds) {
+        if (bookingIds == null || bookingIds.isEmpty()) {
+            throw new BusinessException("INVALID_REQUEST", "bookingIds is required");
+        }
+        Set<Long> ids = new LinkedHashSet<>(bookingIds);
+        ids.remove(null);
+        if (ids.size() > maxBatchSize) {
+            throw new BusinessException("INVALID_REQUEST",
+                    "At most " + maxBatchSize + " bookings can be paid in one request, got " + ids.size());
+        }
+
+        RateSnapshot rate = exchangeRates.current();
+        Map<Long, Booking> bookings = new HashMap<>();
+        for (Booking booking : bookingRepository.findAllById(ids)) {
+            bookings.put(booking.getId(), booking);
+        }
 
-            if (propertyResponse == null) {
-                throw new BusinessException("PROPERTY_NOT_FOUND", "Property not found in database: " + propertyIdStr);
+        Set<String> propertyIds = new HashSet<>();
+        for (Booking booking : bookings.values()) {
+            if (booking.getPropertyId() != null) {
+                propertyIds.add(booking.getPropertyId());
             }
+        }
 
-            String ownerUserIdStr = propertyDatabaseService.extractOwnerUserId(propertyResponse);
-            if (ownerUserIdStr == null || ownerUserIdStr.trim().isEmpty()) {
-                throw new BusinessException("OWNER_NOT_FOUND", "Property does not have an owner userId");
+        Map<String, PropertySnapshot> properties = propertyDatabaseService.getSnapshots(propertyIds);
+        Set<Long> userIds = new HashSet<>();
+        for (Booking booking : bookings.values()) {
+            PropertySnapshot property = properties.get(booking.getPropertyId());
+            if (property != null) {
+                userIds.add(booking.getUserId());
+                userIds.add(property.ownerId());
             }
+        }
+        userIds.remove(null);
+        Map<Long, UserAccount> users = new HashMap<>();
+        for (UserAccount user : userAccountRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
 
-            Long ownerId;
+        List<BatchIntentItem> items = new ArrayList<>(ids.size());
+        List<TransactionRecord> records = new ArrayList<>(ids.size());
+        for (Long bookingId : ids) {
             try {
-                ownerId = Long.parseLong(ownerUserIdStr);
-            } catch (NumberFormatException e) {
-                throw new BusinessException("INVALID_OWNER_ID",
-                        "Property owner userId '" + ownerUserIdStr + "' cannot be converted to Long. " +
-                                "userId in property-service must match id in payment-service users table.");
+                Booking booking = bookings.get(bookingId);
+                if (booking == null) {
+                    throw new BusinessException("BOOKING_NOT_FOUND", "Booking not found: " + bookingId);
+                }
+                if (booking.getPropertyId() == null) {
+                    throw new BusinessException("PROPERTY_NOT_FOUND", "Booking has no property assigned");
+                }
+                PropertySnapshot property = properties.get(booking.getPropertyId());
+                if (property == null) {
+                    throw new BusinessException("PROPERTY_NOT_FOUND",
+                            "Property not found in database with id: " + booking.getPropertyId());
+                }
+                PrecomputedIntent intent = priceIntent(rate, booking, property,
+                        id -> Optional.ofNullable(users.get(id)));
+                TransactionRecord tx = pendingTx(bookingId, booking.getUserId(), intent);
+                records.add(tx);
+                items.add(BatchIntentItem.builder().bookingId(bookingId).intent(toResponse(tx, intent)).build());
+            } catch (BusinessException e) {
+                items.add(BatchIntentItem.builder()
+                        .bookingId(bookingId)
+                        .errorCode(e.getCode())
+                        .errorMessage(e.getMessage())
+                        .build());
             }
+        }
 
-            UserAccount owner = userAccountRepository.findById(ownerId)
-                    .orElseThrow(() -> new BusinessException("OWNER_NOT_FOUND",
-                            "Property owner not found in payment-service users table with id: " + ownerId));
+        transactionRepository.saveAll(records);
+        for (TransactionRecord tx : records) {
+            expiryScheduler.scheduleIntent(tx.getId());
+        }
+        return items;
+    }
 
-            if (owner.getWalletAddress() == null || owner.getWalletAddress().trim().isEmpty()) {
-                throw new BusinessException("WALLET_ADDRESS_MISSING",
-                        "Property owner does not have a wallet address configured");
-            }
+    /**
+     * Builds the intent payload for a freshly created booking, so that the later
+     * {@code POST /intent} only has to persist the transaction. The rent comes from the
+     * booking.created message; owner and deposit are read from the property, exactly as
+     * {@code POST /intent} reads them, so a cached and a freshly priced intent never differ.
+     */
+    public void precomputeIntent(Long bookingId, String propertyId, Long guestId, BigDecimal rentAmount) {
+        if (bookingId == null || propertyId == null || guestId == null
+                || rentAmount == null || rentAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
 
-            if (booking.getTotalPrice() == null) {
-                throw new BusinessException("BOOKING_PRICE_MISSING",
-                        "Booking total price is not set in database. Booking ID: " + bookingId);
-            }
+        PropertySnapshot property = propertyDatabaseService.getSnapshot(propertyId);
+        Long ownerId = property.ownerId();
+        if (ownerId == null) {
+            return;
+        }
+        String ownerWallet = walletOf(findUser(ownerId));
+        String guestWallet = walletOf(findUser(guestId));
+        if (ownerWallet == null || guestWallet == null) {
+            return;
+        }
 
-            BigDecimal total = BigDecimal.valueOf(booking.getTotalPrice());
+        paymentIntentCache.put(buildIntent(exchangeRates.current(), bookingId, propertyId, ownerId, ownerWallet,
+                guestId, guestWallet, rentAmount, BigDecimal.valueOf(property.depositOrZero())));
+    }
 
-            if (total.compareTo(BigDecimal.ZERO) <= 0) {
-                throw new BusinessException("INVALID_BOOKING_PRICE",
-                        "Booking total price must be greater than zero. Current value: " + total);
-            }
+    private static String walletOf(Optional<UserAccount> user) {
+        return user.map(UserAccount::getWalletAddress)
+                .filter(wallet -> !wallet.trim().isEmpty())
+                .orElse(null);
+    }
 
-            UserAccount guest = userAccountRepository.findById(booking.getUserId())
-                    .orElseThrow(
-                            () -> new BusinessException("GUEST_NOT_FOUND", "Guest not found: " + booking.getUserId()));
+    /**
+     * Validates the parties and price of a booking and converts its amounts at {@code rate}, or
+     * reuses a precomputed intent built from the same parties, amounts and rate.
+     */
+    private PrecomputedIntent priceIntent(RateSnapshot rate, Booking booking, PropertySnapshot property,
+            Function<Long, Optional<UserAccount>> users) {
+        Long bookingId = booking.getId();
+        String ownerUserIdStr = property.ownerUserId();
+        if (ownerUserIdStr == null || ownerUserIdStr.trim().isEmpty()) {
+            throw new BusinessException("OWNER_NOT_FOUND", "Property does not have an owner userId");
+        }
 
-            if (guest.getWalletAddress() == null || guest.getWalletAddress().trim().isEmpty()) {
-                throw new BusinessException("WALLET_ADDRESS_MISSING",
-                        "Guest does not have a wallet address configured");
-            }
+        Long ownerId = property.ownerId();
+        if (ownerId == null) {
+            throw new BusinessException("INVALID_OWNER_ID",
+                    "Property owner userId '" + ownerUserIdStr + "' cannot be converted to Long. " +
+                            "userId in property-service must match id in payment-service users table.");
+        }
 
-            Double depositAmount = getDepositAmountFromProperty(propertyIdStr);
-            if (depositAmount == null) {
-                depositAmount = 0.0;
-            }
+        UserAccount owner = users.apply(ownerId)
+                .orElseThrow(() -> new BusinessException("OWNER_NOT_FOUND",
+                        "Property owner not found in payment-service users table with id: " + ownerId));
 
-            BigDecimal deposit = BigDecimal.valueOf(depositAmount);
-            BigDecimal rentAmount = total;
+        if (owner.getWalletAddress() == null || owner.getWalletAddress().trim().isEmpty()) {
+            throw new BusinessException("WALLET_ADDRESS_MISSING",
+                    "Property owner does not have a wallet address configured");
+        }
 
-            // Convert MAD to ETH
-            BigDecimal rentAmountEth = rentAmount.divide(MAD_TO_ETH_RATE, 18, java.math.RoundingMode.HALF_UP);
-            BigDecimal depositAmountEth = deposit.divide(MAD_TO_ETH_RATE, 18, java.math.RoundingMode.HALF_UP);
+        if (booking.getTotalPrice() == null) {
+            throw new BusinessException("BOOKING_PRICE_MISSING",
+                    "Booking total price is not set in database. Booking ID: " + bookingId);
+        }
 
-            BigInteger rentAmountWei = rentAmountEth.multiply(BigDecimal.valueOf(1_000_000_000_000_000_000L))
-                    .toBigInteger();
-            BigInteger depositAmountWei = depositAmountEth.multiply(BigDecimal.valueOf(1_000_000_000_000_000_000L))
-                    .toBigInteger();
+        BigDecimal total = BigDecimal.valueOf(booking.getTotalPrice());
 
-            // Calculate total Wei for value field
-            BigInteger totalAmountWei = rentAmountWei.add(depositAmountWei);
+        if (total.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BusinessException("INVALID_BOOKING_PRICE",
+                    "Booking total price must be greater than zero. Current value: " + total);
+        }
 
-            String contractAddress = getContractAddress();
-            String functionData = null;
-            if (contractAddress != null && !contractAddress.isEmpty()) {
-                try {
-                    functionData = contractService.getCreateBookingPaymentData(
-                            bookingId,
-                            owner.getWalletAddress(),
-                            guest.getWalletAddress(),
-                            rentAmountWei,
-                            depositAmountWei);
-                } catch (Exception e) {
-                }
-            }
+        UserAccount guest = users.apply(booking.getUserId())
+                .orElseThrow(
+                        () -> new BusinessException("GUEST_NOT_FOUND", "Guest not found: " + booking.getUserId()));
 
-            BigDecimal totalWithDeposit = total.add(deposit);
+        if (guest.getWalletAddress() == null || guest.getWalletAddress().trim().isEmpty()) {
+            throw new BusinessException("WALLET_ADDRESS_MISSING",
+                    "Guest does not have a wallet address configured");
+        }
 
-            return createAndPersistTx(
-                    bookingId,
-                    booking.getUserId(),
-                    totalWithDeposit,
-                    contractAddress != null && !contractAddress.isEmpty() ? contractAddress : owner.getWalletAddress(),
-                    functionData,
-                    totalAmountWei);
-        } finally {
-            MDC.clear();
+        BigDecimal deposit = BigDecimal.valueOf(property.depositOrZero());
+
+        PrecomputedIntent precomputed = paymentIntentCache.getIfValid(booking, ownerId, owner.getWalletAddress(),
+                guest.getWalletAddress(), deposit, rate.version());
+        if (precomputed != null) {
+            return precomputed;
         }
+        PrecomputedIntent intent = buildIntent(rate, bookingId, booking.getPropertyId(), ownerId,
+                owner.getWalletAddress(), booking.getUserId(), guest.getWalletAddress(), total, deposit);
+        paymentIntentCache.put(intent);
+        return intent;
     }
 
-    private PaymentIntentResponse createAndPersistTx(Long bookingId, Long userId, BigDecimal total, String toAddress,
-            String functionData, BigInteger totalAmountWei) {
-        UUID referenceId = UUID.randomUUID();
+    private PrecomputedIntent buildIntent(RateSnapshot rate, Long bookingId, String propertyId, Long ownerId,
+            String ownerWallet, Long guestId, String guestWallet, BigDecimal rentAmount, BigDecimal deposit) {
+        // Convert MAD to wei with the current rate snapshot
+        BigInteger rentAmountWei = rate.toWei(rentAmount);
+        BigInteger depositAmountWei = rate.toWei(deposit);
+
+        // Calculate total Wei for value field
+        BigInteger totalAmountWei = rentAmountWei.add(depositAmountWei);
 
+        String contractAddress = getContractAddress();
+        String functionData = null;
+        if (contractAddress != null && !contractAddress.isEmpty()) {
+            try {
+                functionData = contractService.getCreateBookingPaymentData(
+                        bookingId,
+                        ownerWallet,
+                        guestWallet,
+                        rentAmountWei,
+                        depositAmountWei);
+            } catch (Exception e) {
+            }
+        }
+
+        return new PrecomputedIntent(
+                bookingId,
+                propertyId,
+                ownerId,
+                ownerWallet,
+                guestId,
+                guestWallet,
+                rentAmount,
+                deposit,
+                contractAddress != null && !contractAddress.isEmpty() ? contractAddress : ownerWallet,
+                functionData,
+                totalAmountWei,
+                rate.version());
+    }
+
+    private PaymentIntentResponse createAndPersistTx(Long bookingId, Long userId, PrecomputedIntent intent) {
+        TransactionRecord tx = pendingTx(bookingId, userId, intent);
+        transactionRepository.save(tx);
+        expiryScheduler.scheduleIntent(tx.getId());
+        return toResponse(tx, intent);
+    }
+
+    private TransactionRecord pendingTx(Long bookingId, Long userId, PrecomputedIntent intent) {
         TransactionRecord tx = new TransactionRecord();
         tx.setBookingId(bookingId);
         tx.setUserId(userId);
-        tx.setTxHash("pending-" + referenceId);
-        tx.setAmount(total);
+        tx.setReferenceId(UUID.randomUUID());
+        // tx_hash stays NULL until the signed transaction hash is reported
+        tx.setAmount(intent.totalWithDeposit());
+        tx.setRateVersion(intent.rateVersion());
         tx.setStatus(TransactionStatusEnum.PENDING);
-        transactionRepository.save(tx);
+        return tx;
+    }
 
+    private static PaymentIntentResponse toResponse(TransactionRecord tx, PrecomputedIntent intent) {
+        String totalAmountWei = intent.totalAmountWei().toString();
         return PaymentIntentResponse.builder()
-                .referenceId(referenceId)
-                .to(toAddress)
-                .value(totalAmountWei.toString())
-                .data(functionData)
+                .referenceId(tx.getReferenceId())
+                .to(intent.to())
+                .value(totalAmountWei)
+                .data(intent.data())
                 .chainId(CHAIN_ID)
-                .totalAmountWei(totalAmountWei.toString())
+                .totalAmountWei(totalAmountWei)
+                .rateVersion(intent.rateVersion())
                 .build();
     }
 
-    private Double getDepositAmountFromProperty(String propertyId) {
-        try {
-            Map<String, Object> propertyResponse = propertyDatabaseService.getPropertyById(propertyId);
-            return propertyDatabaseService.extractDepositAmount(propertyResponse);
-        } catch (Exception e) {
-            return 0.0;
-        }
-    }
-
     private String getContractAddress() {
         return contractAddress;
     }
@@ -201,26 +362,11 @@ public class PaymentOrchestrator {
                 throw new BusinessException("CONTRACT_NOT_CONFIGURED", "Smart contract address not configured");
             }
 
-            Booking booking = bookingRepository.findById(bookingId)
+            Booking booking = findBooking(bookingId)
                     .orElseThrow(() -> {
                         return new BusinessException("BOOKING_NOT_FOUND", "Booking not found: " + bookingId);
                     });
 
-            if (booking.getPropertyId() != null) {
-                try {
-                    Map<String, Object> propertyResponse = propertyDatabaseService
-                            .getPropertyById(booking.getPropertyId());
-                    String ownerWalletAddress = propertyDatabaseService.extractOwnerUserId(propertyResponse);
-
-                    try {
-                        Long ownerId = Long.parseLong(ownerWalletAddress);
-                        UserAccount owner = userAccountRepository.findById(ownerId).orElse(null);
-                    } catch (NumberFormatException e) {
-                    }
-                } catch (Exception e) {
-                }
-            }
-
             try {
                 String fromAddress = "0xf39Fd6e51aad88F6F4ce6aB8827279cffFb92266";
                 boolean exists = contractService.bookingExists(bookingId, fromAddress);
@@ -240,8 +386,15 @@ public class PaymentOrchestrator {
                 transaction.setTxHash(txHash);
                 transaction.setStatus(TransactionStatusEnum.SUCCESS);
                 transactionRepository.save(transaction);
+                expiryScheduler.cancelIntent(transaction.getId());
             }
 
+            paymentEventPublisher.publishAfterCommit(PaymentEvent.builder()
+                    .eventType(PaymentEvent.BOOKING_COMPLETED)
+                    .bookingId(bookingId)
+                    .txHash(txHash)
+                    .build());
+
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -252,16 +405,97 @@ public class PaymentOrchestrator {
         }
     }
 
+    public String processReclamationRefund(Long bookingId, String recipientAddress, BigInteger refundAmountWei,
+            BigInteger penaltyAmountWei, boolean refundFromRent) throws Exception {
+        String txHash = contractService.processReclamationRefund(
+                bookingId,
+                recipientAddress,
+                refundAmountWei,
+                penaltyAmountWei,
+                refundFromRent);
+
+        publishRefund(bookingId, recipientAddress, refundAmountWei, txHash);
+        return txHash;
+    }
+
+    public String processPartialRefund(Long bookingId, String recipientAddress, BigInteger refundAmountWei,
+            boolean refundFromRent) throws Exception {
+        String txHash = contractService.processPartialRefund(
+                bookingId,
+                recipientAddress,
+                refundAmountWei,
+                refundFromRent);
+
+        publishRefund(bookingId, recipientAddress, refundAmountWei, txHash);
+        return txHash;
+    }
+
+    private void publishRefund(Long bookingId, String recipientAddress, BigInteger refundAmountWei, String txHash) {
+        paymentEventPublisher.publish(PaymentEvent.builder()
+                .eventType(PaymentEvent.REFUND_PROCESSED)
+                .bookingId(bookingId)
+                .txHash(txHash)
+                .amountWei(refundAmountWei.toString())
+                .recipientAddress(recipientAddress)
+                .build());
+    }
+
+    /**
+     * Flips a pending booking to CONFIRMED and cancels the bookings it overlaps.
+     * Callers hold the property lock from {@code PropertyLockManager} so that two overlapping
+     * confirmations cannot both succeed. The booking the caller already loaded is passed in; its
+     * status may be stale by the time the lock is held, so the pending check is made by a
+     * conditional UPDATE instead of a second read. The booking-service notification is written to
+     * the outbox in the same transaction and payment.confirmed is published after commit.
+     *
+     * @return true if this call confirmed the booking
+     */
+    @Transactional
+    public boolean confirmBooking(Booking booking, String txHash) {
+        Long bookingId = booking.getId();
+        if (bookingRepository.transitionStatus(bookingId, PENDING_STATUSES, "CONFIRMED", Instant.now()) == 0) {
+            return false;
+        }
+
+        // Keeps the caller's copy in step; if it is managed, the flush writes the same status
+        booking.setStatus("CONFIRMED");
+        expiryScheduler.cancelNegotiation(bookingId);
+        replicaLagGuard.recordWrite(bookingId);
+        // The payment transaction succeeded, so the booking now exists on chain
+        negativeLookupCache.markOnChain(bookingId);
+        bookingAvailabilityIndex.upsert(booking);
+        paymentIntentCache.invalidateBooking(bookingId);
+
+        cancelOverlappingBookings(booking);
+        bookingStatusRelay.enqueue(bookingId, "CONFIRMED");
+        paymentEventPublisher.publishAfterCommit(PaymentEvent.builder()
+                .eventType(PaymentEvent.PAYMENT_CONFIRMED)
+                .bookingId(bookingId)
+                .txHash(txHash)
+                .build());
+        return true;
+    }
+
+    private Optional<Booking> findBooking(Long bookingId) {
+        return RequestLookupMemo.entity(Booking.class, bookingId, () -> bookingRepository.findById(bookingId));
+    }
+
+    private Optional<UserAccount> findUser(Long userId) {
+        return RequestLookupMemo.entity(UserAccount.class, userId, () -> userAccountRepository.findById(userId));
+    }
+
+    public static boolean isPendingStatus(String status) {
+        return status != null && PENDING_STATUSES.contains(status);
+    }
+
     @Transactional
     public void cancelOverlappingBookings(Long confirmedBookingId) {
-        try {
-            Booking confirmedBooking = bookingRepository.findById(confirmedBookingId)
-                    .orElse(null);
-
-            if (confirmedBooking == null) {
-                return;
-            }
+        findBooking(confirmedBookingId).ifPresent(this::cancelOverlappingBookings);
+    }
 
+    private void cancelOverlappingBookings(Booking confirmedBooking) {
+        try {
+            Long confirmedBookingId = confirmedBooking.getId();
             if (!"CONFIRMED".equals(confirmedBooking.getStatus())) {
                 return;
             }
@@ -274,8 +508,8 @@ public class PaymentOrchestrator {
                 return;
             }
 
-            List<Booking> allPropertyBookings = bookingRepository.findByPropertyId(propertyId);
-
+            // Read from the database, not BookingAvailabilityIndex: the index is per instance and can
+            // miss bookings booking-service just wrote, and a missed overlap would stay live
             List<Booking> overlappingBookings = bookingRepository.findOverlappingBookings(
                     propertyId,
                     confirmedBookingId,
@@ -308,6 +542,9 @@ public class PaymentOrchestrator {
                 try {
                     Long bookingIdToDelete = overlappingBooking.getId();
                     bookingRepository.delete(overlappingBooking);
+                    replicaLagGuard.recordWrite(bookingIdToDelete);
+                    bookingAvailabilityIndex.remove(propertyId, bookingIdToDelete);
+                    paymentIntentCache.invalidateBooking(bookingIdToDelete);
                     deletedCount++;
                 } catch (Exception e) {
                 }
@@ -326,5 +563,15 @@ public class PaymentOrchestrator {
         private String data;
         private Long chainId;
         private String totalAmountWei;
+        private String rateVersion;
+    }
+
+    @lombok.Data
+    @lombok.Builder
+    public static class BatchIntentItem {
+        private Long bookingId;
+        private PaymentIntentResponse intent;
+        private String errorCode;
+        private String errorMessage;
     }
 }
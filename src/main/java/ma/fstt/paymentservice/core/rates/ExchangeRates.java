@@ -0,0 +1,80 @@
+package ma.fstt.paymentservice.core.rates;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Current MAD/ETH rate, refreshed from the configured {@link RateProvider} every
+ * {@code app.rates.refresh-interval-ms}. A failed refresh keeps the last good snapshot, so
+ * intents keep being priced (and stamped) with the previous rate version.
+ */
+@Slf4j
+@Component
+public class ExchangeRates {
+
+    private final RateProvider provider;
+    private final AtomicReference<RateSnapshot> current = new AtomicReference<>();
+    private final Counter refreshed;
+    private final Counter unchanged;
+    private final Counter failed;
+
+    public ExchangeRates(RateProvider provider, MeterRegistry registry) {
+        this.provider = provider;
+        this.refreshed = refreshCounter(registry, "updated");
+        this.unchanged = refreshCounter(registry, "unchanged");
+        this.failed = refreshCounter(registry, "error");
+        Gauge.builder("payments_rate_mad_per_eth", current,
+                        ref -> ref.get() != null ? ref.get().madPerEth().doubleValue() : Double.NaN)
+                .description("MAD/ETH rate currently used to price payment intents")
+                .register(registry);
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.rates.refresh-interval-ms:60000}",
+            initialDelayString = "${app.rates.refresh-interval-ms:60000}")
+    public void refresh() {
+        RateQuote quote;
+        try {
+            quote = provider.fetch();
+        } catch (Exception e) {
+            failed.increment();
+            log.warn("MAD/ETH rate refresh failed, keeping version {}: {}", versionOrNone(), e.getMessage());
+            return;
+        }
+        RateSnapshot previous = current.get();
+        if (previous != null && previous.version().equals(quote.version())
+                && previous.madPerEth().compareTo(quote.madPerEth()) == 0) {
+            unchanged.increment();
+            return;
+        }
+        current.set(RateSnapshot.of(quote));
+        refreshed.increment();
+    }
+
+    public RateSnapshot current() {
+        RateSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            throw new BusinessException("RATE_UNAVAILABLE", "No MAD/ETH exchange rate has been loaded yet");
+        }
+        return snapshot;
+    }
+
+    private String versionOrNone() {
+        RateSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot.version() : "none";
+    }
+
+    private static Counter refreshCounter(MeterRegistry registry, String result) {
+        return Counter.builder("payments_rate_refresh_total")
+                .description("MAD/ETH rate refreshes by result")
+                .tag("result", result)
+                .register(registry);
+    }
+}
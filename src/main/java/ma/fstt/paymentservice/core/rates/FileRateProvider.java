@@ -0,0 +1,46 @@
+package ma.fstt.paymentservice.core.rates;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Reads the rate from a properties file ({@code mad-per-eth}, optional {@code version}) that an
+ * operator or a sidecar rewrites. Without a version the file's modification time is used, so
+ * every rewrite yields a new rate version.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rates.provider", havingValue = "file")
+public class FileRateProvider implements RateProvider {
+
+    private final Path file;
+
+    public FileRateProvider(@Value("${app.rates.file.path}") Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public RateQuote fetch() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String rate = properties.getProperty("mad-per-eth");
+        if (rate == null) {
+            throw new IOException("No mad-per-eth entry in " + file);
+        }
+        String version = properties.getProperty("version");
+        if (version == null || version.isBlank()) {
+            version = "file:" + Files.getLastModifiedTime(file).toMillis();
+        }
+        return new RateQuote(version.trim(), new BigDecimal(rate.trim()));
+    }
+}
@@ -0,0 +1,10 @@
+package ma.fstt.paymentservice.core.rates;
+
+/**
+ * Source of the MAD/ETH exchange rate. {@link ExchangeRates} polls the active provider on its
+ * refresh schedule and keeps the last good quote; implementations may block and may throw.
+ */
+public interface RateProvider {
+
+    RateQuote fetch() throws Exception;
+}
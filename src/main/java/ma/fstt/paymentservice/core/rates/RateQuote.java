@@ -0,0 +1,19 @@
+package ma.fstt.paymentservice.core.rates;
+
+import java.math.BigDecimal;
+
+/**
+ * One MAD/ETH rate as published by a {@link RateProvider}. {@code version} identifies the quote
+ * and is stamped on every intent priced with it.
+ */
+public record RateQuote(String version, BigDecimal madPerEth) {
+
+    public RateQuote {
+        if (version == null || version.isBlank()) {
+            throw new IllegalArgumentException("Rate version is required");
+        }
+        if (madPerEth == null || madPerEth.signum() <= 0) {
+            throw new IllegalArgumentException("MAD/ETH rate must be positive: " + madPerEth);
+        }
+    }
+}
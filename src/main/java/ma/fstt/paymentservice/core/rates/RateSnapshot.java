@@ -0,0 +1,42 @@
+package ma.fstt.paymentservice.core.rates;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * A rate quote prepared for conversion: wei per MAD cent as a fixed-point integer with
+ * {@link #FRACTION_BITS} fractional bits, computed once per quote. Converting an amount is then
+ * one BigInteger multiply and a shift instead of a decimal divide per amount.
+ * <p>
+ * The factor is truncated, so for amounts below 2^64 cents the result is within one wei of
+ * {@code amount / madPerEth} exactly rounded half-up, sub-cent digits included.
+ */
+public record RateSnapshot(String version, BigDecimal madPerEth, BigInteger weiPerCentFixed) {
+
+    static final int FRACTION_BITS = 64;
+
+    private static final BigInteger WEI_PER_ETH_IN_CENTS = BigInteger.TEN.pow(16);
+    private static final BigInteger HALF = BigInteger.ONE.shiftLeft(FRACTION_BITS - 1);
+
+    public static RateSnapshot of(RateQuote quote) {
+        BigInteger weiPerCentFixed = new BigDecimal(WEI_PER_ETH_IN_CENTS.shiftLeft(FRACTION_BITS))
+                .divide(quote.madPerEth(), 0, RoundingMode.DOWN)
+                .toBigIntegerExact();
+        return new RateSnapshot(quote.version(), quote.madPerEth(), weiPerCentFixed);
+    }
+
+    /**
+     * Converts a MAD amount to wei. Whole-cent amounts take the multiply-and-shift path; finer
+     * amounts also divide by their power of ten, in the same final rounding step.
+     */
+    public BigInteger toWei(BigDecimal amountMad) {
+        BigDecimal cents = amountMad.movePointRight(2);
+        BigInteger scaled = cents.unscaledValue().multiply(weiPerCentFixed);
+        if (cents.scale() == 0) {
+            return scaled.add(HALF).shiftRight(FRACTION_BITS);
+        }
+        BigInteger divisor = BigInteger.TEN.pow(cents.scale()).shiftLeft(FRACTION_BITS);
+        return scaled.add(divisor.shiftRight(1)).divide(divisor);
+    }
+}
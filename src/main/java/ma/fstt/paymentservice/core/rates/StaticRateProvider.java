@@ -0,0 +1,26 @@
+package ma.fstt.paymentservice.core.rates;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed rate from {@code app.rates.static.mad-per-eth}; the default provider.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rates.provider", havingValue = "static", matchIfMissing = true)
+public class StaticRateProvider implements RateProvider {
+
+    private final RateQuote quote;
+
+    public StaticRateProvider(@Value("${app.rates.static.mad-per-eth:35000}") BigDecimal madPerEth) {
+        this.quote = new RateQuote("static:" + madPerEth.stripTrailingZeros().toPlainString(), madPerEth);
+    }
+
+    @Override
+    public RateQuote fetch() {
+        return quote;
+    }
+}
@@ -0,0 +1,160 @@
+package ma.fstt.paymentservice.core.service;
+
+import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory calendar of active bookings per property.
+ * Calendars are loaded lazily from the database on first access, updated in place on local
+ * booking writes and dropped when booking-service announces a new booking for the property.
+ * Overlap uses the same inclusive semantics as {@link BookingRepository#findOverlappingBookings}.
+ * <p>
+ * Each instance has its own copy, up to {@code app.booking-index.max-staleness-ms} old, so it only
+ * answers the availability endpoint. Anything that must be authoritative, like cancelling the
+ * bookings a confirmation overlaps, queries the database instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingAvailabilityIndex {
+
+    private final BookingRepository bookingRepository;
+
+    private final Map<String, PropertyCalendar> calendars = new ConcurrentHashMap<>();
+
+    @Value("${app.booking-index.max-staleness-ms:60000}")
+    private long maxStalenessMs;
+
+    public List<Long> findOverlappingBookingIds(String propertyId, Long excludeBookingId,
+            LocalDate checkIn, LocalDate checkOut) {
+        if (propertyId == null || checkIn == null || checkOut == null) {
+            return new ArrayList<>();
+        }
+        return calendarFor(propertyId).findOverlapping(excludeBookingId, checkIn, checkOut);
+    }
+
+    public boolean isAvailable(String propertyId, LocalDate checkIn, LocalDate checkOut) {
+        return findOverlappingBookingIds(propertyId, null, checkIn, checkOut).isEmpty();
+    }
+
+    public void upsert(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getPropertyId() == null) {
+            return;
+        }
+        PropertyCalendar calendar = calendars.get(booking.getPropertyId());
+        if (calendar != null) {
+            calendar.put(booking);
+        }
+    }
+
+    public void remove(String propertyId, Long bookingId) {
+        if (propertyId == null || bookingId == null) {
+            return;
+        }
+        PropertyCalendar calendar = calendars.get(propertyId);
+        if (calendar != null) {
+            calendar.remove(bookingId);
+        }
+    }
+
+    public void invalidate(String propertyId) {
+        if (propertyId != null) {
+            calendars.remove(propertyId);
+        }
+    }
+
+    public int getIndexedPropertyCount() {
+        return calendars.size();
+    }
+
+    private PropertyCalendar calendarFor(String propertyId) {
+        long now = System.currentTimeMillis();
+        return calendars.compute(propertyId, (id, existing) -> {
+            if (existing != null && now - existing.loadedAt < maxStalenessMs) {
+                return existing;
+            }
+            PropertyCalendar calendar = new PropertyCalendar(now);
+            for (Booking booking : bookingRepository.findByPropertyId(id)) {
+                calendar.put(booking);
+            }
+            return calendar;
+        });
+    }
+
+    public static boolean isActive(String status) {
+        return !"COMPLETED".equals(status) && !"CANCELLED".equals(status);
+    }
+
+    private record Span(Long bookingId, LocalDate checkIn, LocalDate checkOut) {
+    }
+
+    /**
+     * Spans keyed by check-in date. Since no span is longer than {@code maxSpanDays}, every span
+     * overlapping [checkIn, checkOut] starts within [checkIn - maxSpanDays, checkOut].
+     */
+    private static final class PropertyCalendar {
+
+        private final long loadedAt;
+        private final NavigableMap<LocalDate, Map<Long, Span>> byCheckIn = new TreeMap<>();
+        private final Map<Long, Span> byId = new HashMap<>();
+        private long maxSpanDays = 0;
+
+        private PropertyCalendar(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        synchronized void put(Booking booking) {
+            remove(booking.getId());
+            if (!isActive(booking.getStatus()) || booking.getCheckInDate() == null
+                    || booking.getCheckOutDate() == null) {
+                return;
+            }
+            Span span = new Span(booking.getId(), booking.getCheckInDate(), booking.getCheckOutDate());
+            byId.put(span.bookingId(), span);
+            byCheckIn.computeIfAbsent(span.checkIn(), d -> new HashMap<>()).put(span.bookingId(), span);
+            maxSpanDays = Math.max(maxSpanDays, ChronoUnit.DAYS.between(span.checkIn(), span.checkOut()));
+        }
+
+        synchronized void remove(Long bookingId) {
+            Span span = byId.remove(bookingId);
+            if (span == null) {
+                return;
+            }
+            Map<Long, Span> sameDay = byCheckIn.get(span.checkIn());
+            if (sameDay != null) {
+                sameDay.remove(bookingId);
+                if (sameDay.isEmpty()) {
+                    byCheckIn.remove(span.checkIn());
+                }
+            }
+        }
+
+        synchronized List<Long> findOverlapping(Long excludeBookingId, LocalDate checkIn, LocalDate checkOut) {
+            List<Long> result = new ArrayList<>();
+            if (checkOut.isBefore(checkIn.minusDays(maxSpanDays))) {
+                return result;
+            }
+            for (Map<Long, Span> sameDay : byCheckIn.subMap(checkIn.minusDays(maxSpanDays), true, checkOut, true)
+                    .values()) {
+                for (Span span : sameDay.values()) {
+                    if (!span.checkOut().isBefore(checkIn) && !span.bookingId().equals(excludeBookingId)) {
+                        result.add(span.bookingId());
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import ma.fstt.paymentservice.config.ReplicaLagGuard;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.entity.UserAccount;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.PropertySnapshot;
+import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/**
+ * Loads everything the booking details view needs. After the booking row, the guest account is
+ * fetched on a bounded executor while the calling thread resolves the property and then its
+ * owner, so latency is the booking lookup plus the slower of the two chains.
+ * Uses virtual threads on JDK 21+, otherwise a small platform thread pool that falls back to
+ * running on the caller when saturated.
+ */
+@Component
+public class BookingDetailsLoader {
+
+    private final BookingRepository bookingRepository;
+    private final UserAccountRepository userAccountRepository;
+    private final PropertyDatabaseService propertyDatabaseService;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final NegativeLookupCache negativeLookupCache;
+    private final AsyncTaskExecutor executor;
+
+    private final Timer bookingTimer;
+    private final Timer propertyOwnerTimer;
+    private final Timer guestTimer;
+    private final Timer criticalPathTimer;
+
+    public BookingDetailsLoader(BookingRepository bookingRepository,
+            UserAccountRepository userAccountRepository,
+            PropertyDatabaseService propertyDatabaseService,
+            ReplicaLagGuard replicaLagGuard,
+            NegativeLookupCache negativeLookupCache,
+            MeterRegistry registry,
+            @Value("${app.booking-details.max-concurrency:32}") int maxConcurrency) {
+        this.bookingRepository = bookingRepository;
+        this.userAccountRepository = userAccountRepository;
+        this.propertyDatabaseService = propertyDatabaseService;
+        this.replicaLagGuard = replicaLagGuard;
+        this.negativeLookupCache = negativeLookupCache;
+        this.executor = createExecutor(maxConcurrency);
+
+        this.bookingTimer = chainTimer(registry, "booking");
+        this.propertyOwnerTimer = chainTimer(registry, "property_owner");
+        this.guestTimer = chainTimer(registry, "guest");
+        this.criticalPathTimer = Timer.builder("payments_booking_details_critical_path_seconds")
+                .description("Time to load booking details: booking lookup plus the slowest dependent chain")
+                .register(registry);
+    }
+
+    public BookingDetailsSources load(Long bookingId) {
+        Timer.Sample total = Timer.start();
+        try {
+            Booking booking = bookingTimer.record(() -> negativeLookupCache.find(NegativeLookupCache.BOOKING, bookingId,
+                            () -> RequestLookupMemo.entity(Booking.class, bookingId,
+                                    () -> bookingRepository.findById(bookingId))))
+                    .orElseThrow(() -> new BusinessException("BOOKING_NOT_FOUND",
+                            "Booking with ID " + bookingId
+                                    + " not found. Please make sure the booking exists in the database."));
+
+            if (booking.getPropertyId() == null) {
+                throw new BusinessException("PROPERTY_NOT_FOUND", "Booking has no property assigned");
+            }
+
+            CompletableFuture<UserAccount> guest = CompletableFuture.supplyAsync(
+                    propagateContext(() -> guestTimer.record(() -> findUser(booking.getUserId()))), executor);
+
+            PropertySnapshot property;
+            UserAccount owner;
+            Timer.Sample chain = Timer.start();
+            try {
+                property = loadProperty(booking.getPropertyId());
+                owner = findUser(property.ownerId());
+            } finally {
+                chain.stop(propertyOwnerTimer);
+            }
+
+            return new BookingDetailsSources(booking, property, owner, join(guest));
+        } finally {
+            total.stop(criticalPathTimer);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (executor instanceof SimpleAsyncTaskExecutor simple) {
+            simple.close();
+        }
+    }
+
+    private PropertySnapshot loadProperty(String propertyId) {
+        try {
+            return propertyDatabaseService.getSnapshot(propertyId);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BusinessException("DATABASE_ERROR",
+                    String.format("Error fetching property '%s' from database: %s", propertyId, e.getMessage()));
+        }
+    }
+
+    private UserAccount findUser(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return RequestLookupMemo.entity(UserAccount.class, userId, () -> userAccountRepository.findById(userId))
+                .orElse(null);
+    }
+
+    /**
+     * Carries the MDC, lookup memo and replica pin of the request thread over to the worker, and restores
+     * the worker's own state afterwards (the task may run on the caller when the pool is full).
+     */
+    private <T> Supplier<T> propagateContext(Supplier<T> task) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        boolean pinned = replicaLagGuard.isPinned();
+        RequestLookupMemo memo = RequestLookupMemo.current();
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            boolean previouslyPinned = replicaLagGuard.isPinned();
+            apply(mdc, pinned);
+            RequestLookupMemo previousMemo = RequestLookupMemo.attach(memo);
+            try {
+                return task.get();
+            } finally {
+                RequestLookupMemo.attach(previousMemo);
+                apply(previousMdc, previouslyPinned);
+            }
+        };
+    }
+
+    private void apply(Map<String, String> mdc, boolean pinned) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        } else {
+            MDC.clear();
+        }
+        if (pinned) {
+            replicaLagGuard.pin();
+        } else {
+            replicaLagGuard.release();
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Timer chainTimer(MeterRegistry registry, String chain) {
+        return Timer.builder("payments_booking_details_lookup_seconds")
+                .description("Time spent in each lookup chain of the booking details view")
+                .tag("chain", chain)
+                .register(registry);
+    }
+
+    private static AsyncTaskExecutor createExecutor(int maxConcurrency) {
+        if (Runtime.version().feature() >= 21) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("booking-details-");
+            virtual.setVirtualThreads(true);
+            virtual.setConcurrencyLimit(maxConcurrency);
+            return virtual;
+        }
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setThreadNamePrefix("booking-details-");
+        pool.setCorePoolSize(maxConcurrency);
+        pool.setMaxPoolSize(maxConcurrency);
+        pool.setQueueCapacity(0);
+        pool.setAllowCoreThreadTimeOut(true);
+        pool.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.initialize();
+        return pool;
+    }
+
+    public record BookingDetailsSources(Booking booking, PropertySnapshot property, UserAccount owner,
+            UserAccount guest) {
+    }
+}
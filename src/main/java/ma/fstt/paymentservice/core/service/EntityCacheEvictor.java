@@ -0,0 +1,48 @@
+package ma.fstt.paymentservice.core.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.domain.entity.Property;
+import ma.fstt.paymentservice.domain.entity.UserAccount;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Drops rows from the Hibernate second-level cache after they are written, so the next read
+ * comes from the database, including columns other services may have changed in the meantime.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void evictUser(Long userId) {
+        if (userId != null) {
+            afterCommit(() -> entityManagerFactory.getCache().evict(UserAccount.class, userId));
+        }
+    }
+
+    public void evictProperty(String propertyId) {
+        if (propertyId != null) {
+            afterCommit(() -> entityManagerFactory.getCache().evict(Property.class, propertyId));
+        }
+    }
+
+    /**
+     * Evicting before commit would let a concurrent reader cache the old row again.
+     */
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+}
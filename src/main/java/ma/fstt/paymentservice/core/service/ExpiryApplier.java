@@ -0,0 +1,99 @@
+package ma.fstt.paymentservice.core.service;
+
+import lombok.RequiredArgsConstructor;
+import ma.fstt.paymentservice.core.messaging.BookingStatusRelay;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.ExpiryDeadline;
+import ma.fstt.paymentservice.domain.repository.TransactionRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the expiries fired by {@link ExpiryScheduler}, one transaction and a few statements
+ * per batch of ids. Every update re-checks the row, so a stale or duplicate expiry (another node,
+ * a payment that landed meanwhile) changes nothing.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExpiryApplier {
+
+    static final String EXPIRED_NEGOTIATION_STATUS = "CANCELLED";
+
+    private final BookingRepository bookingRepository;
+    private final TransactionRepository transactionRepository;
+    private final BookingStatusRelay bookingStatusRelay;
+    private final BookingAvailabilityIndex bookingAvailabilityIndex;
+    private final PaymentIntentCache paymentIntentCache;
+
+    /**
+     * Marks still-pending intents older than {@code ttl} as EXPIRED in one update. Intents that
+     * are still pending but not old enough yet are returned with the instant they become due.
+     *
+     * @return how many intents were expired, and the deadlines of the pending ones keyed by id
+     */
+    @Transactional
+    public Result expireIntents(Collection<Long> transactionIds, Instant now, Duration ttl) {
+        if (transactionIds.isEmpty()) {
+            return new Result(0, Map.of());
+        }
+        int expired = transactionRepository.transitionStatus(transactionIds, TransactionStatusEnum.PENDING,
+                TransactionStatusEnum.EXPIRED, now.minus(ttl).atZone(ZoneOffset.UTC));
+        if (expired == transactionIds.size()) {
+            return new Result(expired, Map.of());
+        }
+        Map<Long, Instant> pending = new HashMap<>();
+        for (ExpiryDeadline intent : transactionRepository.findCreationTimesByIdInAndStatus(transactionIds,
+                TransactionStatusEnum.PENDING)) {
+            if (intent.at() != null) {
+                pending.put(intent.id(), intent.at().plus(ttl));
+            }
+        }
+        return new Result(expired, pending);
+    }
+
+    /**
+     * Cancels bookings whose negotiation window closed and notifies booking-service through the
+     * outbox. Bookings whose window was extended are returned with their new deadline instead.
+     *
+     * @return how many bookings were cancelled, and the new deadlines keyed by booking id
+     */
+    @Transactional
+    public Result expireNegotiations(Collection<Long> bookingIds, Instant now) {
+        if (bookingIds.isEmpty()) {
+            return new Result(0, Map.of());
+        }
+        List<Booking> expired = new ArrayList<>();
+        Map<Long, Instant> extended = new HashMap<>();
+        for (Booking booking : bookingRepository.lockPendingNegotiations(bookingIds)) {
+            Instant deadline = booking.getNegotiationExpiresAt();
+            if (deadline != null && deadline.isAfter(now)) {
+                extended.put(booking.getId(), deadline);
+                continue;
+            }
+            booking.setStatus(EXPIRED_NEGOTIATION_STATUS);
+            expired.add(booking);
+        }
+        // Dirty checking flushes these as one JDBC batch (hibernate.jdbc.batch_size)
+        bookingRepository.saveAll(expired);
+        for (Booking booking : expired) {
+            bookingAvailabilityIndex.upsert(booking);
+            paymentIntentCache.invalidateBooking(booking.getId());
+            bookingStatusRelay.enqueue(booking.getId(), EXPIRED_NEGOTIATION_STATUS);
+        }
+        return new Result(expired.size(), extended);
+    }
+
+    public record Result(int expired, Map<Long, Instant> extended) {
+    }
+}
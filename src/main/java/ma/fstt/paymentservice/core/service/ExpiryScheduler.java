@@ -0,0 +1,273 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.ExpiryDeadline;
+import ma.fstt.paymentservice.domain.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Expires negotiations ({@code Booking.negotiationExpiresAt}) and abandoned payment intents
+ * (PENDING transactions older than {@code app.expiry.intent-ttl-seconds}). Deadlines live in a
+ * {@link TimingWheel} seeded from the database at startup and fed by the writes that create or
+ * settle them; each tick only touches the keys that are due, which {@link ExpiryApplier} then
+ * applies in batched updates.
+ * <p>
+ * Negotiations are opened and extended by booking-service, which tells this service about neither,
+ * so every {@code app.expiry.negotiation-reseed-ms} the negotiation deadlines up to the next
+ * re-seed are read back from the database and scheduled. A negotiation written elsewhere is thus
+ * expired at most one re-seed interval late.
+ */
+@Slf4j
+@Component
+public class ExpiryScheduler {
+
+    public enum Kind { NEGOTIATION, INTENT }
+
+    record Key(Kind kind, Long id) {
+    }
+
+    private final BookingRepository bookingRepository;
+    private final TransactionRepository transactionRepository;
+    private final ExpiryApplier applier;
+    private final TimingWheel<Key> wheel;
+    private final LongSupplier clock;
+    private final Duration intentTtl;
+    private final long retryDelayMs;
+    private final int batchSize;
+    private final boolean enabled;
+    private final long reseedMs;
+    private final MeterRegistry registry;
+    private volatile long nextReseedMs;
+
+    @Autowired
+    public ExpiryScheduler(BookingRepository bookingRepository,
+            TransactionRepository transactionRepository,
+            ExpiryApplier applier,
+            MeterRegistry registry,
+            @Value("${app.expiry.enabled:true}") boolean enabled,
+            @Value("${app.expiry.tick-ms:1000}") long tickMs,
+            @Value("${app.expiry.wheel-size:64}") int wheelSize,
+            @Value("${app.expiry.levels:4}") int levels,
+            @Value("${app.expiry.intent-ttl-seconds:1800}") long intentTtlSeconds,
+            @Value("${app.expiry.retry-delay-ms:30000}") long retryDelayMs,
+            @Value("${app.expiry.batch-size:500}") int batchSize,
+            @Value("${app.expiry.negotiation-reseed-ms:60000}") long reseedMs) {
+        this(bookingRepository, transactionRepository, applier, registry, enabled, tickMs, wheelSize, levels,
+                intentTtlSeconds, retryDelayMs, batchSize, reseedMs, System::currentTimeMillis);
+    }
+
+    ExpiryScheduler(BookingRepository bookingRepository, TransactionRepository transactionRepository,
+            ExpiryApplier applier, MeterRegistry registry, boolean enabled, long tickMs, int wheelSize, int levels,
+            long intentTtlSeconds, long retryDelayMs, int batchSize, long reseedMs, LongSupplier clock) {
+        this.bookingRepository = bookingRepository;
+        this.transactionRepository = transactionRepository;
+        this.applier = applier;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.clock = clock;
+        this.intentTtl = Duration.ofSeconds(intentTtlSeconds);
+        this.retryDelayMs = retryDelayMs;
+        this.batchSize = batchSize;
+        this.reseedMs = reseedMs;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize, levels, clock.getAsLong());
+        this.nextReseedMs = clock.getAsLong() + reseedMs;
+
+        Gauge.builder("payments_expiry_scheduled", this, ExpiryScheduler::scheduledCount)
+                .description("Negotiation and intent deadlines held by the expiry timing wheel")
+                .register(registry);
+    }
+
+    /**
+     * Seeds the wheel with every deadline still open in the database. Deadlines scheduled by
+     * writes in the meantime are kept, since scheduling a key again only replaces it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        List<ExpiryDeadline> negotiations = bookingRepository.findNegotiationDeadlines();
+        List<ExpiryDeadline> intents = transactionRepository.findCreationTimesByStatus(TransactionStatusEnum.PENDING);
+        synchronized (wheel) {
+            for (ExpiryDeadline negotiation : negotiations) {
+                wheel.schedule(new Key(Kind.NEGOTIATION, negotiation.id()), negotiation.at().toEpochMilli());
+            }
+            for (ExpiryDeadline intent : intents) {
+                if (intent.at() != null) {
+                    wheel.schedule(new Key(Kind.INTENT, intent.id()), intent.at().plus(intentTtl).toEpochMilli());
+                }
+            }
+        }
+        log.info("Expiry scheduler loaded {} negotiation and {} intent deadlines", negotiations.size(), intents.size());
+    }
+
+    public void scheduleNegotiation(Long bookingId, Instant expiresAt) {
+        if (enabled && bookingId != null && expiresAt != null) {
+            schedule(new Key(Kind.NEGOTIATION, bookingId), expiresAt.toEpochMilli());
+        }
+    }
+
+    public void cancelNegotiation(Long bookingId) {
+        cancel(new Key(Kind.NEGOTIATION, bookingId));
+    }
+
+    /**
+     * Starts the TTL of an intent whose PENDING transaction was just created.
+     */
+    public void scheduleIntent(Long transactionId) {
+        if (enabled && transactionId != null) {
+            schedule(new Key(Kind.INTENT, transactionId), clock.getAsLong() + intentTtl.toMillis());
+        }
+    }
+
+    public void cancelIntent(Long transactionId) {
+        cancel(new Key(Kind.INTENT, transactionId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (now >= nextReseedMs) {
+            reseedNegotiations(now);
+        }
+        List<Key> due;
+        synchronized (wheel) {
+            due = wheel.advanceTo(now);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<Long> negotiations = new ArrayList<>();
+        List<Long> intents = new ArrayList<>();
+        for (Key key : due) {
+            (key.kind() == Kind.NEGOTIATION ? negotiations : intents).add(key.id());
+        }
+        for (List<Long> batch : partition(intents)) {
+            try {
+                record(Kind.INTENT, batch, applier.expireIntents(batch, Instant.ofEpochMilli(now), intentTtl));
+            } catch (RuntimeException e) {
+                retry(Kind.INTENT, batch, now, e);
+            }
+        }
+        for (List<Long> batch : partition(negotiations)) {
+            try {
+                record(Kind.NEGOTIATION, batch, applier.expireNegotiations(batch, Instant.ofEpochMilli(now)));
+            } catch (RuntimeException e) {
+                retry(Kind.NEGOTIATION, batch, now, e);
+            }
+        }
+    }
+
+    /**
+     * Schedules every open negotiation whose deadline falls before the next re-seed, overdue ones
+     * included. The database is authoritative: a deadline already in the wheel is replaced.
+     */
+    private void reseedNegotiations(long now) {
+        nextReseedMs = now + reseedMs;
+        List<ExpiryDeadline> negotiations;
+        try {
+            negotiations = bookingRepository.findNegotiationDeadlinesBefore(Instant.ofEpochMilli(nextReseedMs));
+        } catch (RuntimeException e) {
+            log.warn("Could not re-seed negotiation deadlines, next attempt in {} ms: {}", reseedMs, e.getMessage());
+            return;
+        }
+        synchronized (wheel) {
+            for (ExpiryDeadline negotiation : negotiations) {
+                wheel.schedule(new Key(Kind.NEGOTIATION, negotiation.id()), negotiation.at().toEpochMilli());
+            }
+        }
+        count(Kind.NEGOTIATION, "reseeded", negotiations.size());
+    }
+
+    /**
+     * Puts back the keys whose row is still open but not due yet (an extended negotiation, an
+     * intent whose creation time is later than the wheel assumed), so none is dropped.
+     */
+    private void record(Kind kind, List<Long> batch, ExpiryApplier.Result result) {
+        synchronized (wheel) {
+            for (Map.Entry<Long, Instant> pending : result.extended().entrySet()) {
+                wheel.schedule(new Key(kind, pending.getKey()), pending.getValue().toEpochMilli());
+            }
+        }
+        count(kind, "expired", result.expired());
+        count(kind, "rescheduled", result.extended().size());
+        count(kind, "skipped", batch.size() - result.expired() - result.extended().size());
+    }
+
+    int scheduledCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    boolean isScheduled(Kind kind, Long id) {
+        synchronized (wheel) {
+            return wheel.contains(new Key(kind, id));
+        }
+    }
+
+    private void schedule(Key key, long deadlineMs) {
+        synchronized (wheel) {
+            wheel.schedule(key, deadlineMs);
+        }
+    }
+
+    private void cancel(Key key) {
+        if (key.id() != null) {
+            synchronized (wheel) {
+                wheel.cancel(key);
+            }
+        }
+    }
+
+    private void retry(Kind kind, List<Long> ids, long now, RuntimeException error) {
+        log.warn("Could not apply {} {} expiries, retrying in {} ms: {}",
+                ids.size(), kind, retryDelayMs, error.getMessage());
+        synchronized (wheel) {
+            for (Long id : ids) {
+                wheel.schedule(new Key(kind, id), now + retryDelayMs);
+            }
+        }
+        count(kind, "retried", ids.size());
+    }
+
+    private List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            batches.add(ids.subList(from, Math.min(ids.size(), from + batchSize)));
+        }
+        return batches;
+    }
+
+    private void count(Kind kind, String result, int amount) {
+        if (amount > 0) {
+            Counter.builder("payments_expiries_total")
+                    .description("Fired negotiation and intent expiries by outcome")
+                    .tag("kind", kind.name().toLowerCase())
+                    .tag("result", result)
+                    .register(registry)
+                    .increment(amount);
+        }
+    }
+}
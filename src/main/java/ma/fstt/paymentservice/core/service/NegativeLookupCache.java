@@ -0,0 +1,113 @@
+package ma.fstt.paymentservice.core.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Answers repeated misses locally. Bookings and properties that were just looked up and not
+ * found are remembered for a short TTL, so clients polling for a booking that does not exist yet
+ * do not query the database each time; {@code booking.created} and property invalidation clear
+ * the entry early.
+ * <p>
+ * On-chain bookings are tracked separately: a bounded set holds booking ids known to exist on
+ * chain (from successful {@code bookingExists} reads and confirmed payments). Bookings are
+ * never removed from the contract, so a member is answered without an {@code eth_call}. The set
+ * is exact; an id evicted by the size bound is simply checked on chain again.
+ */
+@Component
+public class NegativeLookupCache {
+
+    public static final String BOOKING = "booking";
+    public static final String PROPERTY = "property";
+    public static final String ONCHAIN_BOOKING = "onchain-booking";
+
+    private final Cache<String, Boolean> missing;
+    private final Cache<Long, Boolean> onChainBookings;
+    private final MeterRegistry registry;
+
+    public NegativeLookupCache(MeterRegistry registry,
+            @Value("${app.negative-cache.ttl-ms:2000}") long ttlMs,
+            @Value("${app.negative-cache.max-size:50000}") long maxSize,
+            @Value("${app.negative-cache.onchain-max-size:200000}") long maxOnChainBookings) {
+        this.registry = registry;
+        this.missing = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.onChainBookings = CacheBuilder.newBuilder()
+                .maximumSize(maxOnChainBookings)
+                .build();
+    }
+
+    /**
+     * Loads through {@code loader} unless {@code id} recently came back empty in this scope.
+     */
+    public <T> Optional<T> find(String scope, Object id, Supplier<Optional<T>> loader) {
+        if (id == null) {
+            return loader.get();
+        }
+        if (isKnownMissing(scope, id)) {
+            return Optional.empty();
+        }
+        Optional<T> loaded = loader.get();
+        if (loaded.isEmpty()) {
+            recordMissing(scope, id);
+        }
+        return loaded;
+    }
+
+    public boolean isKnownMissing(String scope, Object id) {
+        boolean known = missing.getIfPresent(key(scope, id)) != null;
+        count(scope, known ? "negative_hit" : "miss");
+        return known;
+    }
+
+    public void recordMissing(String scope, Object id) {
+        missing.put(key(scope, id), Boolean.TRUE);
+    }
+
+    public void invalidate(String scope, Object id) {
+        if (id != null) {
+            missing.invalidate(key(scope, id));
+        }
+    }
+
+    public boolean isKnownOnChain(Long bookingId) {
+        boolean known = bookingId != null && onChainBookings.getIfPresent(bookingId) != null;
+        if (known) {
+            count(ONCHAIN_BOOKING, "positive_hit");
+        }
+        return known;
+    }
+
+    /**
+     * Records a booking seen on chain, which also clears any cached "not on chain" answer.
+     */
+    public void markOnChain(Long bookingId) {
+        if (bookingId != null) {
+            onChainBookings.put(bookingId, Boolean.TRUE);
+            invalidate(ONCHAIN_BOOKING, bookingId);
+        }
+    }
+
+    private void count(String scope, String result) {
+        Counter.builder("payments_negative_cache_requests_total")
+                .description("Existence lookups answered locally or passed through, by scope and result")
+                .tag("scope", scope)
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    private static String key(String scope, Object id) {
+        return scope + ':' + id;
+    }
+}
@@ -0,0 +1,102 @@
+package ma.fstt.paymentservice.core.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payment intent payloads computed ahead of {@code POST /intent}, keyed by booking id.
+ * An entry is only served if every input it was built from still holds: the booking's guest,
+ * property and price, the property's owner and deposit, both wallets and the exchange rate
+ * version. Bookings, properties and users can also be evicted explicitly when they change.
+ */
+@Component
+public class PaymentIntentCache {
+
+    private final Cache<Long, PrecomputedIntent> cache;
+    private final PaymentsMetrics paymentsMetrics;
+
+    public PaymentIntentCache(PaymentsMetrics paymentsMetrics,
+            @Value("${app.intent-cache.max-size:10000}") long maxSize,
+            @Value("${app.intent-cache.ttl-seconds:900}") long ttlSeconds) {
+        this.paymentsMetrics = paymentsMetrics;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public PrecomputedIntent getIfValid(Booking booking, Long ownerId, String ownerWallet, String guestWallet,
+            BigDecimal depositAmount, String rateVersion) {
+        PrecomputedIntent intent = cache.getIfPresent(booking.getId());
+        if (intent != null && intent.matches(booking, ownerId, ownerWallet, guestWallet, depositAmount)
+                && Objects.equals(intent.rateVersion(), rateVersion)) {
+            paymentsMetrics.incrementIntentCache("hit");
+            return intent;
+        }
+        paymentsMetrics.incrementIntentCache("miss");
+        return null;
+    }
+
+    public void put(PrecomputedIntent intent) {
+        cache.put(intent.bookingId(), intent);
+    }
+
+    public void invalidateBooking(Long bookingId) {
+        if (bookingId != null) {
+            cache.invalidate(bookingId);
+        }
+    }
+
+    public void invalidateProperty(String propertyId) {
+        cache.asMap().values().removeIf(intent -> Objects.equals(intent.propertyId(), propertyId));
+    }
+
+    public void invalidateUser(Long userId) {
+        cache.asMap().values().removeIf(intent ->
+                Objects.equals(intent.ownerId(), userId) || Objects.equals(intent.guestId(), userId));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public record PrecomputedIntent(
+            Long bookingId,
+            String propertyId,
+            Long ownerId,
+            String ownerWallet,
+            Long guestId,
+            String guestWallet,
+            BigDecimal rentAmount,
+            BigDecimal depositAmount,
+            String to,
+            String data,
+            BigInteger totalAmountWei,
+            String rateVersion) {
+
+        public BigDecimal totalWithDeposit() {
+            return rentAmount.add(depositAmount);
+        }
+
+        boolean matches(Booking booking, Long ownerId, String ownerWallet, String guestWallet,
+                BigDecimal depositAmount) {
+            return Objects.equals(guestId, booking.getUserId())
+                    && Objects.equals(propertyId, booking.getPropertyId())
+                    && booking.getTotalPrice() != null
+                    && rentAmount.compareTo(BigDecimal.valueOf(booking.getTotalPrice())) == 0
+                    && Objects.equals(this.ownerId, ownerId)
+                    && this.ownerWallet.equalsIgnoreCase(ownerWallet)
+                    && this.guestWallet.equalsIgnoreCase(guestWallet)
+                    && depositAmount != null && this.depositAmount.compareTo(depositAmount) == 0;
+        }
+    }
+}
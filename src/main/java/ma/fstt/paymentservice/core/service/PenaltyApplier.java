@@ -0,0 +1,160 @@
+package ma.fstt.paymentservice.core.service;
+
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Deducts penalty points from user scores and applies the suspension tiers in a single
+ * {@code UPDATE ... RETURNING}, however many users are penalized: the score is computed from the
+ * locked row, so concurrent penalties cannot overwrite each other, and the caller gets the stored
+ * result without reading the row back.
+ * <p>
+ * Tiers by new score: &le;74 suspended indefinitely, 75-79 for 60 days, 80-84 for 30 days, 85-89
+ * for 7 days; above 89 an elapsed suspension is lifted.
+ */
+@Component
+public class PenaltyApplier {
+
+    // Rows are locked in id order so concurrent batches cannot deadlock on each other
+    static final String APPLY_PENALTIES_SQL =
+            "WITH target AS ("
+            + " SELECT u.id, u.score AS previous_score, GREATEST(0, u.score - p.points) AS score,"
+            + " CAST(? AS TIMESTAMP) AS now"
+            + " FROM users u"
+            + " JOIN unnest(CAST(? AS BIGINT[]), CAST(? AS INTEGER[])) AS p(user_id, points) ON p.user_id = u.id"
+            + " ORDER BY u.id"
+            + " FOR UPDATE OF u)"
+            + " UPDATE users u SET"
+            + " score = t.score,"
+            + " is_suspended = CASE"
+            + "  WHEN t.score <= 89 THEN TRUE"
+            + "  WHEN u.is_suspended AND u.suspension_until < t.now THEN FALSE"
+            + "  ELSE u.is_suspended END,"
+            + " suspension_reason = CASE"
+            + "  WHEN t.score <= 74 THEN 'Score too low (≤74) - ' || (100 - t.score) || ' penalty points deducted'"
+            + "  WHEN t.score <= 79 THEN 'Low score (75-79) - ' || (100 - t.score) || ' penalty points deducted'"
+            + "  WHEN t.score <= 84 THEN 'Low score (80-84) - ' || (100 - t.score) || ' penalty points deducted'"
+            + "  WHEN t.score <= 89 THEN 'Moderate score (85-89) - ' || (100 - t.score) || ' penalty points deducted'"
+            + "  WHEN u.is_suspended AND u.suspension_until < t.now THEN NULL"
+            + "  ELSE u.suspension_reason END,"
+            + " suspension_until = CASE"
+            + "  WHEN t.score <= 74 THEN NULL"
+            + "  WHEN t.score <= 79 THEN t.now + INTERVAL '60 days'"
+            + "  WHEN t.score <= 84 THEN t.now + INTERVAL '30 days'"
+            + "  WHEN t.score <= 89 THEN t.now + INTERVAL '7 days'"
+            + "  WHEN u.is_suspended AND u.suspension_until < t.now THEN NULL"
+            + "  ELSE u.suspension_until END"
+            + " FROM target t"
+            + " WHERE u.id = t.id"
+            + " RETURNING u.id, t.previous_score, u.score, u.is_suspended, u.suspension_until";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final int maxBatchSize;
+    private final LongSupplier clock;
+
+    @Autowired
+    public PenaltyApplier(JdbcTemplate jdbcTemplate,
+            EntityCacheEvictor entityCacheEvictor,
+            @Value("${app.penalty-batch.max-size:500}") int maxBatchSize) {
+        this(jdbcTemplate, entityCacheEvictor, maxBatchSize, System::currentTimeMillis);
+    }
+
+    PenaltyApplier(JdbcTemplate jdbcTemplate, EntityCacheEvictor entityCacheEvictor, int maxBatchSize,
+            LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.maxBatchSize = maxBatchSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Deducts {@code points} from one user.
+     *
+     * @return the updated score, or {@code null} when the user does not exist
+     */
+    @Transactional
+    public Result apply(Long userId, Integer points) {
+        List<Result> results = applyAll(List.of(new Penalty(userId, points)));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Deducts the points of every penalty in one statement. Points for the same user are added up;
+     * users that do not exist are left out of the result, which is ordered by user id. Invalid
+     * input, including a total that overflows, fails with a {@link BusinessException} before any
+     * row is touched.
+     */
+    @Transactional
+    public List<Result> applyAll(Collection<Penalty> penalties) {
+        if (penalties == null || penalties.isEmpty()) {
+            throw new BusinessException("INVALID_REQUEST", "At least one penalty is required");
+        }
+        Map<Long, Integer> sorted = new TreeMap<>();
+        for (Penalty penalty : penalties) {
+            if (penalty == null || penalty.userId() == null) {
+                throw new BusinessException("INVALID_REQUEST", "userId is required");
+            }
+            Integer points = penalty.points();
+            if (points == null || points <= 0) {
+                throw new BusinessException("INVALID_PENALTY_POINTS",
+                        "Invalid penalty points for user " + penalty.userId() + ": " + points);
+            }
+            try {
+                sorted.merge(penalty.userId(), points, Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new BusinessException("INVALID_PENALTY_POINTS",
+                        "Penalty points for user " + penalty.userId() + " add up to more than " + Integer.MAX_VALUE);
+            }
+        }
+        if (sorted.size() > maxBatchSize) {
+            throw new BusinessException("INVALID_REQUEST",
+                    "At most " + maxBatchSize + " users can be penalized in one request, got " + sorted.size());
+        }
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.getAsLong()), ZoneId.systemDefault());
+
+        List<Result> results = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(APPLY_PENALTIES_SQL);
+            statement.setTimestamp(1, Timestamp.valueOf(now));
+            statement.setArray(2, connection.createArrayOf("bigint", sorted.keySet().toArray()));
+            statement.setArray(3, connection.createArrayOf("integer", sorted.values().toArray()));
+            return statement;
+        }, (row, rowNum) -> {
+            Timestamp until = row.getTimestamp("suspension_until");
+            int newScore = row.getInt("score");
+            return new Result(row.getLong("id"), row.getInt("previous_score"), newScore,
+                    row.getInt("previous_score") - newScore, row.getBoolean("is_suspended"),
+                    until != null ? until.toLocalDateTime() : null);
+        });
+        results.sort((a, b) -> Long.compare(a.userId(), b.userId()));
+        for (Result result : results) {
+            entityCacheEvictor.evictUser(result.userId());
+        }
+        return results;
+    }
+
+    public record Penalty(Long userId, Integer points) {
+    }
+
+    /**
+     * {@code pointsDeducted} can be lower than requested when the score bottomed out at zero.
+     */
+    public record Result(Long userId, int previousScore, int newScore, int pointsDeducted, boolean suspended,
+            LocalDateTime suspensionUntil) {
+    }
+}
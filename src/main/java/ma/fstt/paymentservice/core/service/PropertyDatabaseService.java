@@ -1,126 +1,136 @@
 package ma.fstt.paymentservice.core.service;
 
-import lombok.RequiredArgsConstructor;
-import ma.fstt.paymentservice.domain.entity.Property;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import ma.fstt.paymentservice.domain.repository.PropertyRepository;
+import ma.fstt.paymentservice.domain.repository.PropertySnapshot;
 import ma.fstt.paymentservice.exception.BusinessException;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Property data shared with property-service, read as {@link PropertySnapshot}s and cached for a
+ * bounded time. Property changes are owned by property-service and no change signal reaches this
+ * service, so an edit (price, deposit, owner) is seen here only once the entry expires: up to
+ * {@code app.property-cache.ttl-seconds} late. Lower the TTL if that window is too long.
+ */
 @Service
-@RequiredArgsConstructor
 public class PropertyDatabaseService {
 
     private final PropertyRepository propertyRepository;
+    private final PaymentIntentCache paymentIntentCache;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final NegativeLookupCache negativeLookupCache;
+    private final PaymentsMetrics paymentsMetrics;
+    private final Cache<String, PropertySnapshot> snapshots;
 
-    @Transactional(readOnly = true)
-    public Map<String, Object> getPropertyById(String propertyId) {
+    public PropertyDatabaseService(PropertyRepository propertyRepository,
+            PaymentIntentCache paymentIntentCache,
+            EntityCacheEvictor entityCacheEvictor,
+            NegativeLookupCache negativeLookupCache,
+            PaymentsMetrics paymentsMetrics,
+            @Value("${app.property-cache.max-size:10000}") long maxSize,
+            @Value("${app.property-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.propertyRepository = propertyRepository;
+        this.paymentIntentCache = paymentIntentCache;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.negativeLookupCache = negativeLookupCache;
+        this.paymentsMetrics = paymentsMetrics;
+        this.snapshots = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public PropertySnapshot getSnapshot(String propertyId) {
         if (propertyId == null || propertyId.trim().isEmpty()) {
             throw new IllegalArgumentException("Property ID cannot be null or empty");
         }
+        return RequestLookupMemo.value(PropertySnapshot.class, propertyId, () -> Optional.of(load(propertyId))).get();
+    }
 
-        try {
-            Property property = propertyRepository.findById(propertyId)
-                    .orElseThrow(() -> {
-                        return new BusinessException("PROPERTY_NOT_FOUND", 
-                            "Property not found in database with id: " + propertyId);
-                    });
-
-            Map<String, Object> propertyMap = new HashMap<>();
-            propertyMap.put("id", property.getId());
-            propertyMap.put("userId", property.getUserId());
-            propertyMap.put("dailyPrice", property.getDailyPrice());
-            propertyMap.put("depositAmount", property.getDepositAmount() != null ? property.getDepositAmount() : 0.0);
-            propertyMap.put("title", property.getTitle());
-            propertyMap.put("description", property.getDescription());
-            propertyMap.put("capacity", property.getCapacity());
-            
-            Integer bedrooms = property.getNumberOfBedrooms() != null ? property.getNumberOfBedrooms() : property.getBedrooms();
-            Integer bathrooms = property.getNumberOfBathrooms() != null ? property.getNumberOfBathrooms() : property.getBathrooms();
-            propertyMap.put("numberOfBedrooms", bedrooms);
-            propertyMap.put("numberOfBathrooms", bathrooms);
-            propertyMap.put("numberOfBeds", property.getNumberOfBeds());
-            
-            propertyMap.put("address", property.getAddress());
-            propertyMap.put("city", property.getCity());
-            propertyMap.put("country", property.getCountry());
-            propertyMap.put("latitude", property.getLatitude());
-            propertyMap.put("longitude", property.getLongitude());
-            
-            boolean isNegotiable = property.getNegotiationPercentage() != null && property.getNegotiationPercentage() > 0;
-            propertyMap.put("isNegotiable", isNegotiable);
-            propertyMap.put("negotiationPercentage", property.getNegotiationPercentage());
-            propertyMap.put("maxNegotiationPercent", property.getMaxNegotiationPercent());
-            
-            propertyMap.put("isAvailable", true);
-            propertyMap.put("discountEnabled", false);
-
-            return propertyMap;
+    private PropertySnapshot load(String propertyId) {
+        PropertySnapshot cached = snapshots.getIfPresent(propertyId);
+        if (cached != null) {
+            paymentsMetrics.incrementPropertySnapshotCache("hit");
+            return cached;
+        }
+        paymentsMetrics.incrementPropertySnapshotCache("miss");
 
+        PropertySnapshot snapshot;
+        try {
+            snapshot = negativeLookupCache.find(NegativeLookupCache.PROPERTY, propertyId,
+                            () -> propertyRepository.findSnapshotById(propertyId))
+                    .orElseThrow(() -> new BusinessException("PROPERTY_NOT_FOUND",
+                            "Property not found in database with id: " + propertyId));
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
-            throw new BusinessException("DATABASE_ERROR", 
-                "Failed to fetch property from database: " + e.getMessage());
+            throw new BusinessException("DATABASE_ERROR",
+                    "Failed to fetch property from database: " + e.getMessage());
         }
-    }
 
-    public String extractOwnerUserId(Map<String, Object> propertyMap) {
-        if (propertyMap == null) {
-            return null;
-        }
-        
-        Object userId = propertyMap.get("userId");
-        if (userId == null) {
-            return null;
-        }
-        
-        return userId.toString();
+        snapshots.put(propertyId, snapshot);
+        return snapshot;
     }
 
-    public Double extractDailyPrice(Map<String, Object> propertyMap) {
-        if (propertyMap == null) {
-            return null;
-        }
-        
-        Object dailyPrice = propertyMap.get("dailyPrice");
-        if (dailyPrice == null) {
-            return null;
+    /**
+     * Snapshots for several properties, loading all uncached ones with a single query. Unknown ids
+     * are left out of the result.
+     */
+    public Map<String, PropertySnapshot> getSnapshots(Collection<String> propertyIds) {
+        Map<String, PropertySnapshot> result = new HashMap<>();
+        Set<String> toLoad = new HashSet<>();
+        for (String propertyId : propertyIds) {
+            if (propertyId == null) {
+                continue;
+            }
+            PropertySnapshot cached = snapshots.getIfPresent(propertyId);
+            if (cached != null) {
+                paymentsMetrics.incrementPropertySnapshotCache("hit");
+                result.put(propertyId, cached);
+            } else if (!negativeLookupCache.isKnownMissing(NegativeLookupCache.PROPERTY, propertyId)) {
+                paymentsMetrics.incrementPropertySnapshotCache("miss");
+                toLoad.add(propertyId);
+            }
         }
-        
-        if (dailyPrice instanceof Number) {
-            return ((Number) dailyPrice).doubleValue();
+        if (toLoad.isEmpty()) {
+            return result;
         }
-        
+
         try {
-            return Double.parseDouble(dailyPrice.toString());
-        } catch (NumberFormatException e) {
-            return null;
+            for (PropertySnapshot snapshot : propertyRepository.findSnapshotsByIdIn(toLoad)) {
+                snapshots.put(snapshot.id(), snapshot);
+                result.put(snapshot.id(), snapshot);
+            }
+        } catch (Exception e) {
+            throw new BusinessException("DATABASE_ERROR",
+                    "Failed to fetch properties from database: " + e.getMessage());
+        }
+        for (String propertyId : toLoad) {
+            if (!result.containsKey(propertyId)) {
+                negativeLookupCache.recordMissing(NegativeLookupCache.PROPERTY, propertyId);
+            }
         }
+        return result;
     }
 
-    public Double extractDepositAmount(Map<String, Object> propertyMap) {
-        if (propertyMap == null) {
-            return 0.0;
-        }
-        
-        Object depositAmount = propertyMap.get("depositAmount");
-        if (depositAmount == null) {
-            return 0.0;
-        }
-        
-        if (depositAmount instanceof Number) {
-            return ((Number) depositAmount).doubleValue();
-        }
-        
-        try {
-            return Double.parseDouble(depositAmount.toString());
-        } catch (NumberFormatException e) {
-            return 0.0;
+    // Drops everything derived from the property; for callers that know it changed
+    public void invalidate(String propertyId) {
+        if (propertyId != null) {
+            snapshots.invalidate(propertyId);
+            paymentIntentCache.invalidateProperty(propertyId);
+            entityCacheEvictor.evictProperty(propertyId);
+            negativeLookupCache.invalidate(NegativeLookupCache.PROPERTY, propertyId);
         }
     }
 }
-
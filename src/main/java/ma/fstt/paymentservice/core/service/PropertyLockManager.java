@@ -0,0 +1,93 @@
+package ma.fstt.paymentservice.core.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes work on the same property (booking confirmation and overlap cancellation).
+ * Each property gets its own in-process lock, so unrelated properties never wait for each other.
+ * In {@code advisory} mode the callback additionally runs in a transaction that first takes a
+ * PostgreSQL transaction-level advisory lock on a 64-bit hash of the property id, so that several
+ * instances share the same critical section. The advisory lock lives on the transaction's own
+ * connection and is released when the callback's work commits or rolls back.
+ */
+@Component
+public class PropertyLockManager {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Weak values: a lock is dropped once no thread holds or waits for it
+    private final LoadingCache<String, Lock> locks = CacheBuilder.newBuilder()
+            .weakValues()
+            .build(CacheLoader.from(() -> new ReentrantLock()));
+    private final boolean advisory;
+    private final long timeoutMs;
+
+    public PropertyLockManager(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.booking-lock.mode:local}") String mode,
+            @Value("${app.booking-lock.timeout-ms:10000}") long timeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionManager != null ? new TransactionTemplate(transactionManager) : null;
+        this.advisory = "advisory".equalsIgnoreCase(mode);
+        this.timeoutMs = timeoutMs;
+    }
+
+    public <T> T withPropertyLock(String propertyId, Supplier<T> action) {
+        if (propertyId == null) {
+            return action.get();
+        }
+
+        Lock lock = locks.getUnchecked(propertyId);
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException("PROPERTY_LOCK_TIMEOUT",
+                        "Timed out waiting for booking lock on property " + propertyId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("PROPERTY_LOCK_INTERRUPTED",
+                    "Interrupted while waiting for booking lock on property " + propertyId);
+        }
+
+        try {
+            return advisory ? withAdvisoryLock(propertyId, action) : action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T withAdvisoryLock(String propertyId, Supplier<T> action) {
+        long key = advisoryKey(propertyId);
+        return transactionTemplate.execute(status -> {
+            try {
+                // Both are scoped to the transaction, so nothing has to be undone on the pooled connection
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + timeoutMs);
+                jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", key);
+            } catch (DataAccessException e) {
+                throw new BusinessException("PROPERTY_LOCK_TIMEOUT",
+                        "Could not acquire advisory lock on property " + propertyId + ": " + e.getMessage(), e);
+            }
+            return action.get();
+        });
+    }
+
+    static long advisoryKey(String propertyId) {
+        return Hashing.murmur3_128().hashString(propertyId, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -1,164 +1,228 @@
 package ma.fstt.paymentservice.core.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.paymentservice.exception.BusinessException;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-
+import java.util.function.LongSupplier;
+
+/**
+ * Reads properties from property-service over the shared pooled {@link HttpClient}.
+ * Responses are cached stale-while-revalidate: fresh entries are served directly, stale ones are
+ * served while a single background refresh runs, and concurrent misses for the same property
+ * share one upstream call.
+ * <p>
+ * Not on the payment path: intents are priced from the shared database through
+ * {@link PropertyDatabaseService}. This client is for callers that need property-service's own view.
+ */
+@Slf4j
 @Service
 public class PropertyServiceClient {
 
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final PaymentsMetrics paymentsMetrics;
     private final String propertyServiceBaseUrl;
+    private final Duration readTimeout;
+    private final long freshTtlMs;
+    private final LongSupplier clock;
+    private final Cache<String, CachedProperty> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<PropertyDetails>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PropertyServiceClient(HttpClient httpClient,
+            ObjectMapper objectMapper,
+            PaymentsMetrics paymentsMetrics,
+            @Value("${app.property-service.url:http://localhost:8082}") String propertyServiceBaseUrl,
+            @Value("${app.property-service.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${app.property-service.cache.fresh-ttl-ms:30000}") long freshTtlMs,
+            @Value("${app.property-service.cache.max-stale-ms:300000}") long maxStaleMs,
+            @Value("${app.property-service.cache.max-size:10000}") long maxSize) {
+        this(httpClient, objectMapper, paymentsMetrics, propertyServiceBaseUrl, readTimeoutMs,
+                freshTtlMs, maxStaleMs, maxSize, System::currentTimeMillis);
+    }
 
-    public PropertyServiceClient(@Value("${app.property-service.url:http://localhost:8082}") String propertyServiceBaseUrl) {
+    PropertyServiceClient(HttpClient httpClient, ObjectMapper objectMapper, PaymentsMetrics paymentsMetrics,
+            String propertyServiceBaseUrl, long readTimeoutMs, long freshTtlMs, long maxStaleMs, long maxSize,
+            LongSupplier clock) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.paymentsMetrics = paymentsMetrics;
         this.propertyServiceBaseUrl = propertyServiceBaseUrl;
-        this.restTemplate = createRestTemplate();
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.freshTtlMs = freshTtlMs;
+        this.clock = clock;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(freshTtlMs + maxStaleMs, TimeUnit.MILLISECONDS)
+                .build();
     }
 
     public String getPropertyServiceBaseUrl() {
         return propertyServiceBaseUrl;
     }
 
-    private RestTemplate createRestTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(5)); // 5 seconds connection timeout
-        factory.setReadTimeout((int) TimeUnit.SECONDS.toMillis(10)); // 10 seconds read timeout
-        
-        RestTemplate template = new RestTemplate(factory);
-        return template;
-    }
-
-    public Map<String, Object> getPropertyById(String propertyId) {
+    public PropertyDetails getPropertyById(String propertyId) {
         if (propertyId == null || propertyId.trim().isEmpty()) {
             throw new IllegalArgumentException("Property ID cannot be null or empty");
         }
+        return join(lookup(propertyId));
+    }
 
-        String url = propertyServiceBaseUrl + "/api/v1/properties/" + propertyId;
+    /**
+     * Resolves several properties at once: cached ones immediately, the rest with concurrent
+     * upstream calls. Properties property-service does not know are left out of the result.
+     */
+    public Map<String, PropertyDetails> getPropertiesByIds(Collection<String> propertyIds) {
+        Map<String, CompletableFuture<PropertyDetails>> pending = new LinkedHashMap<>();
+        for (String propertyId : propertyIds) {
+            if (propertyId != null && !propertyId.trim().isEmpty()) {
+                pending.computeIfAbsent(propertyId, this::lookup);
+            }
+        }
 
-        try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                return response.getBody();
-            } else {
-                return null;
+        Map<String, PropertyDetails> properties = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<PropertyDetails>> entry : pending.entrySet()) {
+            try {
+                properties.put(entry.getKey(), join(entry.getValue()));
+            } catch (BusinessException e) {
+                if (!"PROPERTY_NOT_FOUND".equals(e.getCode())) {
+                    throw e;
+                }
             }
-        } catch (HttpClientErrorException.NotFound e) {
-            String errorMsg = String.format(
-                "Property not found in property-service: %s. " +
-                "URL: %s, Response: %s", propertyId, url, e.getResponseBodyAsString()
-            );
-            throw new RuntimeException("Property not found: " + propertyId, e);
-        } catch (HttpClientErrorException e) {
-            String errorMsg = String.format(
-                "Client error when calling property-service for property %s. " +
-                "Status: %s, URL: %s, Response: %s", 
-                propertyId, e.getStatusCode(), url, e.getResponseBodyAsString()
-            );
-            throw new RuntimeException("Property-service client error: " + e.getStatusCode(), e);
-        } catch (HttpServerErrorException e) {
-            String responseBody = e.getResponseBodyAsString();
-            
-            String detailedError = String.format(
-                "Property-service server error (%s) for property '%s'. " +
-                "\n\n" +
-                "DIAGNOSIS: The property exists in the database, but property-service failed to load it. " +
-                "This is usually caused by one of these issues:\n" +
-                "1) Missing or NULL relationship data:\n" +
-                "   - PropertyType (type_id) is NULL or references non-existent type\n" +
-                "   - Address (address_id) is NULL or references non-existent address\n" +
-                "   - Check: SELECT type_id, address_id FROM properties WHERE id = '%s';\n" +
-                "2) Corrupted relationship data in join tables\n" +
-                "3) EntityGraph loading failure when fetching relationships\n" +
-                "\n" +
-                "SOLUTION: Check property-service logs for the exact error. " +
-                "Then verify the property data in database:\n" +
-                "  SELECT id, type_id, address_id, user_id, daily_price, deposit_amount, status " +
-                "  FROM properties WHERE id = '%s';\n" +
-                "\n" +
-                "Response from property-service: %s",
-                e.getStatusCode(), propertyId, propertyId, propertyId,
-                responseBody != null && responseBody.length() > 300 
-                    ? responseBody.substring(0, 300) + "..." 
-                    : (responseBody != null ? responseBody : "No details available")
-            );
-            throw new RuntimeException(detailedError, e);
-        } catch (ResourceAccessException e) {
-            String errorMsg = String.format(
-                "Failed to connect to property-service at %s. " +
-                "Please ensure property-service is running and accessible. " +
-                "Error: %s", url, e.getMessage()
-            );
-            throw new RuntimeException(errorMsg, e);
-        } catch (RestClientException e) {
-            String errorMsg = String.format(
-                "Error calling property-service API for property %s: %s", 
-                propertyId, e.getMessage()
-            );
-            throw new RuntimeException(errorMsg, e);
         }
+        return properties;
     }
 
-    public String extractOwnerUserId(Map<String, Object> propertyResponse) {
-        if (propertyResponse == null) {
-            return null;
-        }
+    public void invalidate(String propertyId) {
+        cache.invalidate(propertyId);
+    }
 
-        Object userIdObj = propertyResponse.get("userId");
-        if (userIdObj != null) {
-            return userIdObj.toString();
+    private CompletableFuture<PropertyDetails> lookup(String propertyId) {
+        CachedProperty cached = cache.getIfPresent(propertyId);
+        if (cached != null) {
+            if (clock.getAsLong() - cached.fetchedAt() < freshTtlMs) {
+                paymentsMetrics.incrementPropertyClientCache("hit");
+            } else {
+                paymentsMetrics.incrementPropertyClientCache("stale");
+                fetch(propertyId).exceptionally(error -> {
+                    log.warn("Refreshing property {} failed, serving the cached copy: {}",
+                            propertyId, error.getMessage());
+                    return null;
+                });
+            }
+            return CompletableFuture.completedFuture(cached.property());
         }
-
-        return null;
+        paymentsMetrics.incrementPropertyClientCache("miss");
+        return fetch(propertyId);
     }
 
-    public String extractPropertyTitle(Map<String, Object> propertyResponse, String propertyId) {
-        if (propertyResponse == null) {
-            return "Property " + propertyId;
+    /**
+     * Single-flight: joins the upstream call already running for this property, if any.
+     */
+    private CompletableFuture<PropertyDetails> fetch(String propertyId) {
+        CompletableFuture<PropertyDetails> started = new CompletableFuture<>();
+        CompletableFuture<PropertyDetails> running = inFlight.putIfAbsent(propertyId, started);
+        if (running != null) {
+            return running;
         }
 
-        Object titleObj = propertyResponse.get("title");
-        if (titleObj != null) {
-            return titleObj.toString();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(propertyUri(propertyId))
+                    .timeout(readTimeout)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(response -> decode(propertyId, response))
+                    .whenComplete((property, error) -> {
+                        if (property != null) {
+                            cache.put(propertyId, new CachedProperty(property, clock.getAsLong()));
+                        }
+                        inFlight.remove(propertyId, started);
+                        if (error != null) {
+                            started.completeExceptionally(error);
+                        } else {
+                            started.complete(property);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // A bad URI or a rejected send must not leave later callers joining a future that never completes
+            inFlight.remove(propertyId, started);
+            started.completeExceptionally(e);
         }
-
-        return "Property " + propertyId;
+        return started;
     }
 
-    public Double extractDailyPrice(Map<String, Object> propertyResponse) {
-        if (propertyResponse == null) {
-            return 0.0;
+    private PropertyDetails decode(String propertyId, HttpResponse<byte[]> response) {
+        int status = response.statusCode();
+        if (status == 404) {
+            throw new BusinessException("PROPERTY_NOT_FOUND", "Property not found in property-service: " + propertyId);
         }
-
-        Object priceObj = propertyResponse.get("dailyPrice");
-        if (priceObj instanceof Number) {
-            return ((Number) priceObj).doubleValue();
+        if (status != 200) {
+            throw new BusinessException("PROPERTY_SERVICE_ERROR",
+                    "Property-service returned " + status + " for property " + propertyId);
         }
+        try {
+            return objectMapper.readValue(response.body(), PropertyDetails.class);
+        } catch (IOException e) {
+            throw new BusinessException("PROPERTY_SERVICE_ERROR",
+                    "Unreadable property-service response for property " + propertyId + ": " + e.getMessage(), e);
+        }
+    }
 
-        return 0.0;
+    private URI propertyUri(String propertyId) {
+        return URI.create(propertyServiceBaseUrl + "/api/v1/properties/"
+                + URLEncoder.encode(propertyId, StandardCharsets.UTF_8));
     }
 
-    public Double extractDepositAmount(Map<String, Object> propertyResponse) {
-        if (propertyResponse == null) {
-            return 0.0;
+    private static PropertyDetails join(CompletableFuture<PropertyDetails> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BusinessException business) {
+                throw business;
+            }
+            throw new BusinessException("PROPERTY_SERVICE_UNAVAILABLE",
+                    "Failed to call property-service: " + e.getCause().getMessage(), e.getCause());
         }
+    }
 
-        Object depositObj = propertyResponse.get("depositAmount");
-        if (depositObj instanceof Number) {
-            return ((Number) depositObj).doubleValue();
-        }
+    /**
+     * The property-service fields payment-service relies on; anything else in the payload is ignored.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PropertyDetails(
+            String id,
+            String userId,
+            String title,
+            Double dailyPrice,
+            Double depositAmount,
+            Integer maxNegotiationPercent) {
+    }
 
-        return 0.0;
+    private record CachedProperty(PropertyDetails property, long fetchedAt) {
     }
 }
-
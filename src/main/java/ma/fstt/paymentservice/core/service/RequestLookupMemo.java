@@ -0,0 +1,99 @@
+package ma.fstt.paymentservice.core.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Identity memo for booking, user and property lookups made during one HTTP request, opened and
+ * closed by {@code RequestLookupMemoFilter}. Outside a request every lookup goes straight to
+ * its loader.
+ * <p>
+ * Entities are only memoized outside read-write transactions: inside one the persistence
+ * context already returns the same managed instance, and a memoized detached copy could hide
+ * the write. Loading an entity in a read-write transaction also forgets its memoized copy.
+ */
+public final class RequestLookupMemo {
+
+    private static final ThreadLocal<RequestLookupMemo> CURRENT = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, Optional<?>> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger deduped = new AtomicInteger();
+
+    public static RequestLookupMemo open() {
+        RequestLookupMemo memo = new RequestLookupMemo();
+        CURRENT.set(memo);
+        return memo;
+    }
+
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    static RequestLookupMemo current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes {@code memo} the current one for this thread, e.g. on a worker serving the request.
+     * Returns the previous memo so it can be restored.
+     */
+    static RequestLookupMemo attach(RequestLookupMemo memo) {
+        RequestLookupMemo previous = CURRENT.get();
+        if (memo != null) {
+            CURRENT.set(memo);
+        } else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    public static <T> Optional<T> entity(Class<T> type, Object id, Supplier<Optional<T>> loader) {
+        RequestLookupMemo memo = CURRENT.get();
+        if (memo != null && id != null && inReadWriteTransaction()) {
+            memo.entries.remove(key(type, id));
+            return loader.get();
+        }
+        return lookup(memo, type, id, loader);
+    }
+
+    /**
+     * For immutable values, which are safe to share whatever the transaction.
+     */
+    public static <T> Optional<T> value(Class<T> type, Object id, Supplier<Optional<T>> loader) {
+        return lookup(CURRENT.get(), type, id, loader);
+    }
+
+    public int deduped() {
+        return deduped.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Optional<T> lookup(RequestLookupMemo memo, Class<T> type, Object id,
+            Supplier<Optional<T>> loader) {
+        if (memo == null || id == null) {
+            return loader.get();
+        }
+        String key = key(type, id);
+        Optional<?> memoized = memo.entries.get(key);
+        if (memoized != null) {
+            memo.deduped.incrementAndGet();
+            return (Optional<T>) memoized;
+        }
+        Optional<T> loaded = loader.get();
+        memo.entries.putIfAbsent(key, loaded);
+        return loaded;
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static String key(Class<?> type, Object id) {
+        return type.getSimpleName() + ':' + id;
+    }
+}
@@ -0,0 +1,181 @@
+package ma.fstt.paymentservice.core.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck). Level {@code l} has {@code wheelSize} slots of
+ * {@code wheelSize^l} ticks each; a key sits in the lowest level whose span covers its deadline
+ * and moves down a level when its slot comes round. Scheduling, cancelling and each tick are
+ * O(1) apart from the keys actually due or cascaded. Deadlines beyond the top level are parked
+ * in its furthest slot and re-placed when that slot cascades.
+ * <p>
+ * Deadlines are rounded up to the next tick, so a key never fires before its deadline; it may
+ * fire up to one tick after it.
+ * <p>
+ * Time is in ticks of {@code tickMs} since the {@code startMs} given at construction. Not
+ * thread-safe; callers synchronize.
+ */
+public final class TimingWheel<K> {
+
+    private final long tickMs;
+    private final long startMs;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final Entry<K>[][] slots;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1 || levels < 1) {
+            throw new IllegalArgumentException("tickMs must be positive, wheelSize a power of two >= 2, levels >= 1");
+        }
+        if ((long) Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+            throw new IllegalArgumentException("wheelSize^levels must fit in 62 bits");
+        }
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.slots = new Entry[levels][wheelSize];
+    }
+
+    /**
+     * Schedules {@code key} to fire at {@code deadlineMs}, replacing any deadline it already had.
+     * Deadlines that have already passed fire on the next tick.
+     */
+    public void schedule(K key, long deadlineMs) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, Math.max(toDeadlineTick(deadlineMs), currentTick + 1));
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    public boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Advances to {@code nowMs} one tick at a time and returns the keys whose deadline was reached,
+     * tick by tick. An empty wheel jumps straight to {@code nowMs}.
+     */
+    public List<K> advanceTo(long nowMs) {
+        long targetTick = toTick(nowMs);
+        List<K> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            if (entries.isEmpty()) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(level, slotIndex(currentTick, level));
+                }
+            }
+            Entry<K> entry = detach(0, slotIndex(currentTick, 0));
+            while (entry != null) {
+                Entry<K> next = entry.next;
+                entry.prev = null;
+                entry.next = null;
+                entries.remove(entry.key);
+                expired.add(entry.key);
+                entry = next;
+            }
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int slot) {
+        Entry<K> entry = detach(level, slot);
+        while (entry != null) {
+            Entry<K> next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private void place(Entry<K> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        // Past the horizon: park in the furthest top-level slot, re-placed when it cascades
+        long tick = Math.min(entry.deadlineTick, currentTick + (1L << (bits * levels)) - 1);
+        int slot = slotIndex(tick, level);
+
+        entry.level = level;
+        entry.slot = slot;
+        entry.next = slots[level][slot];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        slots[level][slot] = entry;
+    }
+
+    private void unlink(Entry<K> entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            slots[entry.level][entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private Entry<K> detach(int level, int slot) {
+        Entry<K> head = slots[level][slot];
+        slots[level][slot] = null;
+        return head;
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (bits * level)) & mask);
+    }
+
+    private long toTick(long timeMs) {
+        return Math.floorDiv(timeMs - startMs, tickMs);
+    }
+
+    private long toDeadlineTick(long deadlineMs) {
+        return -Math.floorDiv(startMs - deadlineMs, tickMs);
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long deadlineTick;
+        private int level;
+        private int slot;
+        private Entry<K> prev;
+        private Entry<K> next;
+
+        private Entry(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ma.fstt.paymentservice.domain.converter;
+
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalized handling of 0x-prefixed hex values (tx hashes, wallet addresses). The canonical
+ * text form is lowercase with a 0x prefix; the stored form is the raw fixed-width bytes.
+ */
+public final class EthereumHex {
+
+    public static final int TX_HASH_BYTES = 32;
+    public static final int ADDRESS_BYTES = 20;
+
+    private static final Pattern HEX = Pattern.compile("(0[xX])?[0-9a-fA-F]*");
+    private static final HexFormat FORMAT = HexFormat.of();
+
+    private EthereumHex() {
+    }
+
+    public static boolean isTxHash(String value) {
+        return isHex(value, TX_HASH_BYTES);
+    }
+
+    public static boolean isAddress(String value) {
+        return isHex(value, ADDRESS_BYTES);
+    }
+
+    /**
+     * Lowercase, 0x-prefixed form of {@code value}, or null for null/blank input.
+     *
+     * @throws IllegalArgumentException if the value is not {@code length} bytes of hex
+     */
+    public static String normalize(String value, int length) {
+        byte[] bytes = toBytes(value, length);
+        return bytes != null ? toHex(bytes) : null;
+    }
+
+    public static byte[] toBytes(String value, int length) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (!isHex(trimmed, length)) {
+            throw new IllegalArgumentException("Expected " + length + " bytes of 0x-hex but got: " + value);
+        }
+        return FORMAT.parseHex(stripPrefix(trimmed).toLowerCase(Locale.ROOT));
+    }
+
+    public static String toHex(byte[] bytes) {
+        return bytes != null ? "0x" + FORMAT.formatHex(bytes) : null;
+    }
+
+    public static boolean isHex(String value, int length) {
+        if (value == null) {
+            return false;
+        }
+        String trimmed = value.trim();
+        return HEX.matcher(trimmed).matches() && stripPrefix(trimmed).length() == length * 2;
+    }
+
+    private static String stripPrefix(String value) {
+        return value.startsWith("0x") || value.startsWith("0X") ? value.substring(2) : value;
+    }
+}
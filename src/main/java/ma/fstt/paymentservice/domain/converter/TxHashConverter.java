@@ -0,0 +1,21 @@
+package ma.fstt.paymentservice.domain.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores transaction hashes as 32-byte binary values; reads them back as lowercase 0x-hex.
+ */
+@Converter
+public class TxHashConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return EthereumHex.toBytes(attribute, EthereumHex.TX_HASH_BYTES);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return EthereumHex.toHex(dbData);
+    }
+}
@@ -0,0 +1,25 @@
+package ma.fstt.paymentservice.domain.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Locale;
+
+/**
+ * Keeps wallet addresses as lowercase 0x-hex text. users.wallet_address is shared with other
+ * services that write it as text, so it is not stored as binary; values they wrote in another
+ * case are lowercased on read rather than rejected.
+ */
+@Converter
+public class WalletAddressConverter implements AttributeConverter<String, String> {
+
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+        return EthereumHex.normalize(attribute, EthereumHex.ADDRESS_BYTES);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+        return dbData == null || dbData.isBlank() ? null : dbData.trim().toLowerCase(Locale.ROOT);
+    }
+}
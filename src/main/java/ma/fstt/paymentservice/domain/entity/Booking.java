@@ -9,7 +9,10 @@ import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_property_dates_status", columnList = "property_id, check_in_date, check_out_date, status"),
+        @Index(name = "idx_bookings_status_negotiation_expiry", columnList = "status, negotiation_expires_at")
+})
 @Getter
 @Setter
 @ToString
@@ -0,0 +1,61 @@
+package ma.fstt.paymentservice.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import ma.fstt.paymentservice.domain.entity.enums.OutboxStateEnum;
+
+import java.time.Instant;
+
+/**
+ * Pending booking status update for booking-service. One row per booking: a newer status
+ * overwrites an undelivered one, and the row is deleted once booking-service accepted it.
+ */
+@Entity
+@Table(name = "booking_status_outbox", indexes = {
+        @Index(name = "idx_booking_status_outbox_due", columnList = "state, next_attempt_at")
+})
+@Getter
+@Setter
+@ToString
+public class BookingStatusOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_status_outbox_seq")
+    @SequenceGenerator(name = "booking_status_outbox_seq", sequenceName = "booking_status_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false, unique = true)
+    private Long bookingId;
+
+    @Column(name = "status", nullable = false, length = 50)
+    private String status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 20)
+    private OutboxStateEnum state = OutboxStateEnum.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false, columnDefinition = "TIMESTAMP")
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", nullable = true, columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "TIMESTAMP")
+    private Instant createdAt;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ma.fstt.paymentservice.domain.entity;
+
+/**
+ * Hibernate second-level cache region names, shared by the entity mappings and the cache
+ * configuration that sizes them.
+ */
+public final class EntityCacheRegions {
+
+    public static final String USERS = "users";
+    public static final String PROPERTIES = "properties";
+
+    private EntityCacheRegions() {
+    }
+}
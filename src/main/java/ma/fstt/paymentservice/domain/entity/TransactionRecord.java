@@ -4,20 +4,29 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import ma.fstt.paymentservice.domain.converter.EthereumHex;
+import ma.fstt.paymentservice.domain.converter.TxHashConverter;
 import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
 
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_tx_hash", columnList = "tx_hash"),
+        @Index(name = "idx_transactions_booking_created", columnList = "booking_id, created_at"),
+        @Index(name = "idx_transactions_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_transactions_reference_id", columnList = "reference_id", unique = true)
+})
 @Getter
 @Setter
 @ToString
 public class TransactionRecord {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "booking_id", nullable = true)
@@ -26,12 +35,21 @@ public class TransactionRecord {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
-    @Column(name = "tx_hash", nullable = true, columnDefinition = "TEXT")
-    private String txHash;
+    // Returned to the client by POST /intent; identifies the intent until the tx hash is known
+    @Column(name = "reference_id", nullable = true, unique = true)
+    private UUID referenceId;
+
+    @Convert(converter = TxHashConverter.class)
+    @Column(name = "tx_hash", nullable = true, length = EthereumHex.TX_HASH_BYTES)
+    private String txHash; // 0x-hex in Java, 32 raw bytes in the database
 
     @Column(name = "amount", nullable = false, precision = 15, scale = 2)
     private BigDecimal amount;
 
+    // Version of the MAD/ETH rate the intent was priced with
+    @Column(name = "rate_version", nullable = true, length = 64)
+    private String rateVersion;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 20)
     private TransactionStatusEnum status = TransactionStatusEnum.PENDING;
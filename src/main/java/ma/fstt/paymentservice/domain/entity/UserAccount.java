@@ -4,10 +4,16 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import ma.fstt.paymentservice.domain.converter.WalletAddressConverter;
 
 import java.time.LocalDate;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EntityCacheRegions.USERS)
+// Wallet addresses are looked up through idx_users_wallet_address_lower on LOWER(wallet_address) (V8)
 @Table(name = "users")
 @Getter
 @Setter
@@ -39,8 +45,9 @@ public class UserAccount {
     @Column(name = "phone_number", nullable = true)
     private Long phoneNumber;
 
-    @Column(name = "wallet_address", columnDefinition = "TEXT", nullable = true)
-    private String walletAddress;
+    @Convert(converter = WalletAddressConverter.class)
+    @Column(name = "wallet_address", nullable = true)
+    private String walletAddress; // lowercase 0x-hex; the column is shared text
 
     @Column(name = "is_enabled", nullable = false)
     private Boolean isEnabled = true;
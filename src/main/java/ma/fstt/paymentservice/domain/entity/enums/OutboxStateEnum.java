@@ -0,0 +1,6 @@
+package ma.fstt.paymentservice.domain.entity.enums;
+
+public enum OutboxStateEnum {
+    PENDING,
+    FAILED
+}
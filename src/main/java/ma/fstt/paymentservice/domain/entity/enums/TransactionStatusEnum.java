@@ -3,6 +3,8 @@ package ma.fstt.paymentservice.domain.entity.enums;
 public enum TransactionStatusEnum {
     PENDING,
     SUCCESS,
-    FAILED
+    FAILED,
+    // Intent abandoned: no transaction hash reported within app.expiry.intent-ttl-seconds
+    EXPIRED
 }
 
@@ -0,0 +1,117 @@
+package ma.fstt.paymentservice.domain.migration;
+
+import ma.fstt.paymentservice.domain.converter.EthereumHex;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves transactions.tx_hash from hex text to fixed-width binary. Written in Java so the hex
+ * parsing is the same as {@link EthereumHex} on every database. Only this service's own table is
+ * converted: users is shared with services that read and write wallet_address as text (see V8).
+ * <p>
+ * The old "pending-&lt;uuid&gt;" tx_hash placeholders carry the intent's reference id, so they are
+ * moved to the new transactions.reference_id column (uniquely indexed by V4) before tx_hash is
+ * cleared. Blank values become NULL. Any other value that is not a valid hash/address fails the
+ * migration, listing the rows to fix, rather than being dropped.
+ */
+public class V3__Binary_tx_hash extends BaseJavaMigration {
+
+    static final String PENDING_PREFIX = "pending-";
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ROWS = 20;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("ALTER TABLE transactions ADD COLUMN reference_id UUID");
+        }
+        toBinary(connection);
+    }
+
+    private void toBinary(Connection connection) throws SQLException {
+        int length = EthereumHex.TX_HASH_BYTES;
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("ALTER TABLE transactions ADD COLUMN tx_hash_bin BYTEA");
+        }
+
+        List<String> invalid = new ArrayList<>();
+        int invalidCount = 0;
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE transactions SET tx_hash_bin = ?, reference_id = ? WHERE id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            int pending = 0;
+            try (ResultSet rows = select.executeQuery(
+                    "SELECT id, tx_hash FROM transactions WHERE tx_hash IS NOT NULL")) {
+                while (rows.next()) {
+                    long id = rows.getLong(1);
+                    String value = rows.getString(2);
+                    byte[] bytes = null;
+                    UUID referenceId = null;
+                    if (EthereumHex.isHex(value, length)) {
+                        bytes = EthereumHex.toBytes(value, length);
+                    } else if (pendingReference(value) != null) {
+                        referenceId = pendingReference(value);
+                    } else if (value.isBlank()) {
+                        continue;
+                    } else {
+                        if (invalid.size() < MAX_REPORTED_ROWS) {
+                            invalid.add(id + "='" + value + "'");
+                        }
+                        invalidCount++;
+                        continue;
+                    }
+                    update.setBytes(1, bytes);
+                    update.setObject(2, referenceId);
+                    update.setLong(3, id);
+                    update.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+        if (invalidCount > 0) {
+            throw new FlywayException(invalidCount + " row(s) of transactions.tx_hash"
+                    + " are not " + length + "-byte 0x-hex and would be lost; fix or clear them and rerun"
+                    + " (id=value, first " + invalid.size() + "): " + String.join(", ", invalid));
+        }
+
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP INDEX IF EXISTS idx_transactions_tx_hash");
+            ddl.execute("ALTER TABLE transactions DROP COLUMN tx_hash");
+            ddl.execute("ALTER TABLE transactions RENAME COLUMN tx_hash_bin TO tx_hash");
+            ddl.execute("ALTER TABLE transactions ADD CONSTRAINT chk_transactions_tx_hash_length"
+                    + " CHECK (tx_hash IS NULL OR OCTET_LENGTH(tx_hash) = " + length + ")");
+            ddl.execute("CREATE INDEX idx_transactions_tx_hash ON transactions (tx_hash)");
+        }
+    }
+
+    static UUID pendingReference(String value) {
+        String trimmed = value.trim();
+        if (!trimmed.startsWith(PENDING_PREFIX)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(trimmed.substring(PENDING_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
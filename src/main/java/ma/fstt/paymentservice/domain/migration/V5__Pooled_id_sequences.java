@@ -0,0 +1,43 @@
+package ma.fstt.paymentservice.domain.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Sequences for the tables whose rows this service inserts, so Hibernate can allocate ids in
+ * blocks and batch the inserts. Each sequence starts past the current MAX(id): the pooled
+ * optimizer treats a sequence value as the top of a block of {@link #ALLOCATION_SIZE} ids.
+ * bookings and users keep their identity columns because other services insert into them.
+ */
+public class V5__Pooled_id_sequences extends BaseJavaMigration {
+
+    // Must match allocationSize of the entities' @SequenceGenerator
+    static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        createSequence(connection, "transactions", "transactions_seq");
+        createSequence(connection, "booking_status_outbox", "booking_status_outbox_seq");
+    }
+
+    private void createSequence(Connection connection, String table, String sequence) throws SQLException {
+        long maxId;
+        try (Statement select = connection.createStatement();
+             ResultSet rs = select.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE SEQUENCE " + sequence
+                    + " START WITH " + (maxId + ALLOCATION_SIZE)
+                    + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ma.fstt.paymentservice.domain.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * users.wallet_address is shared with services that read and write it as text, so it stays
+ * text. Existing values are normalized in place to the lowercase 0x form this service writes;
+ * other writers may still use checksum case, so lookups go through an index on
+ * LOWER(wallet_address), which replaces the plain V2 index. H2 has no expression indexes, so
+ * there the index is left out.
+ */
+public class V8__Lowercase_wallet_address extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE users SET wallet_address = NULLIF(LOWER(TRIM(wallet_address)), '')"
+                    + " WHERE wallet_address <> NULLIF(LOWER(TRIM(wallet_address)), '')"
+                    + " OR TRIM(wallet_address) = ''");
+            if ("PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                // Same CONCURRENTLY note as V2
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_users_wallet_address_lower"
+                        + " ON users (LOWER(wallet_address))");
+            }
+            statement.execute("DROP INDEX IF EXISTS idx_users_wallet_address");
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package ma.fstt.paymentservice.domain.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import ma.fstt.paymentservice.domain.entity.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,5 +31,27 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
         @Param("checkInDate") LocalDate checkInDate,
         @Param("checkOutDate") LocalDate checkOutDate
     );
-}
 
+    @Query("SELECT new ma.fstt.paymentservice.domain.repository.ExpiryDeadline(b.id, b.negotiationExpiresAt) " +
+           "FROM Booking b WHERE b.status = 'PENDING_NEGOTIATION' AND b.negotiationExpiresAt IS NOT NULL")
+    List<ExpiryDeadline> findNegotiationDeadlines();
+
+    // Overdue deadlines and those before the horizon; a range scan of idx_bookings_status_negotiation_expiry
+    @Query("SELECT new ma.fstt.paymentservice.domain.repository.ExpiryDeadline(b.id, b.negotiationExpiresAt) " +
+           "FROM Booking b WHERE b.status = 'PENDING_NEGOTIATION' AND b.negotiationExpiresAt <= :horizon")
+    List<ExpiryDeadline> findNegotiationDeadlinesBefore(@Param("horizon") Instant horizon);
+
+    // Rows another node is already expiring are skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids AND b.status = 'PENDING_NEGOTIATION'")
+    List<Booking> lockPendingNegotiations(@Param("ids") Collection<Long> ids);
+
+    // The status is checked by the UPDATE itself, so a booking already read by the caller is not loaded again
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :to, b.updatedAt = :now WHERE b.id = :id AND b.status IN :from")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("from") Collection<String> from,
+                         @Param("to") String to,
+                         @Param("now") Instant now);
+}
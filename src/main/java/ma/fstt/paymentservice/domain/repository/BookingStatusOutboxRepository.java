@@ -0,0 +1,55 @@
+package ma.fstt.paymentservice.domain.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import ma.fstt.paymentservice.domain.entity.BookingStatusOutbox;
+import ma.fstt.paymentservice.domain.entity.enums.OutboxStateEnum;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface BookingStatusOutboxRepository extends JpaRepository<BookingStatusOutbox, Long> {
+    Optional<BookingStatusOutbox> findByBookingId(Long bookingId);
+
+    // Rows another instance has claimed are skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM BookingStatusOutbox o WHERE o.state = :state AND o.nextAttemptAt <= :now " +
+           "ORDER BY o.nextAttemptAt")
+    List<BookingStatusOutbox> findDue(@Param("state") OutboxStateEnum state,
+                                      @Param("now") Instant now,
+                                      Pageable pageable);
+
+    long countByState(OutboxStateEnum state);
+
+    /**
+     * Inserts the booking's pending row or resets the existing one to the new status. The id is
+     * the top of a fresh sequence block, which the pooled optimizer never hands out otherwise.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO booking_status_outbox "
+            + "(id, booking_id, status, state, attempts, next_attempt_at, last_error, created_at, version) "
+            + "VALUES (nextval('booking_status_outbox_seq'), :bookingId, :status, 'PENDING', 0, :now, NULL, :now, 0) "
+            + "ON CONFLICT (booking_id) DO UPDATE SET status = EXCLUDED.status, state = EXCLUDED.state, "
+            + "attempts = 0, next_attempt_at = EXCLUDED.next_attempt_at, last_error = NULL, "
+            + "version = booking_status_outbox.version + 1",
+            nativeQuery = true)
+    int upsertPending(@Param("bookingId") Long bookingId,
+                      @Param("status") String status,
+                      @Param("now") Instant now);
+
+    // Only removes the row if no newer status was written while it was in flight
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BookingStatusOutbox o WHERE o.id = :id AND o.version = :version")
+    int deleteDelivered(@Param("id") Long id, @Param("version") Long version);
+}
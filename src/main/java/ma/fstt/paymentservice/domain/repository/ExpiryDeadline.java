@@ -0,0 +1,15 @@
+package ma.fstt.paymentservice.domain.repository;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/**
+ * A row id and the instant its expiry is measured from, loaded through a projection to seed the
+ * expiry scheduler at startup.
+ */
+public record ExpiryDeadline(Long id, Instant at) {
+
+    public ExpiryDeadline(Long id, ZonedDateTime at) {
+        this(id, at != null ? at.toInstant() : null);
+    }
+}
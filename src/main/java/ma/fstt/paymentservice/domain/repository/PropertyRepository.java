@@ -2,12 +2,25 @@ package ma.fstt.paymentservice.domain.repository;
 
 import ma.fstt.paymentservice.domain.entity.Property;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PropertyRepository extends JpaRepository<Property, String> {
     Optional<Property> findById(String id);
-}
 
+    @Query("SELECT new ma.fstt.paymentservice.domain.repository.PropertySnapshot(" +
+           "p.id, p.userId, p.dailyPrice, p.depositAmount, p.title, p.maxNegotiationPercent) " +
+           "FROM Property p WHERE p.id = :id")
+    Optional<PropertySnapshot> findSnapshotById(@Param("id") String id);
+
+    @Query("SELECT new ma.fstt.paymentservice.domain.repository.PropertySnapshot(" +
+           "p.id, p.userId, p.dailyPrice, p.depositAmount, p.title, p.maxNegotiationPercent) " +
+           "FROM Property p WHERE p.id IN :ids")
+    List<PropertySnapshot> findSnapshotsByIdIn(@Param("ids") Collection<String> ids);
+}
@@ -0,0 +1,32 @@
+package ma.fstt.paymentservice.domain.repository;
+
+/**
+ * The property fields used on the payment paths, loaded through a projection instead of the
+ * full {@code Property} entity. Immutable, so instances can be shared through a cache.
+ */
+public record PropertySnapshot(
+        String id,
+        String ownerUserId,
+        Double dailyPrice,
+        Double depositAmount,
+        String title,
+        Integer maxNegotiationPercent) {
+
+    /**
+     * Owner id as a payment-service user id, or null if property-service stored something else.
+     */
+    public Long ownerId() {
+        if (ownerUserId == null || ownerUserId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(ownerUserId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public double depositOrZero() {
+        return depositAmount != null ? depositAmount : 0.0;
+    }
+}
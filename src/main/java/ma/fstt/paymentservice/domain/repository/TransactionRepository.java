@@ -1,13 +1,40 @@
 package ma.fstt.paymentservice.domain.repository;
 
 import ma.fstt.paymentservice.domain.entity.TransactionRecord;
+import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface TransactionRepository extends JpaRepository<TransactionRecord, Long> {
     Optional<TransactionRecord> findByTxHash(String txHash);
+    Optional<TransactionRecord> findByReferenceId(UUID referenceId);
     Optional<TransactionRecord> findFirstByBookingIdOrderByCreatedAtDesc(Long bookingId);
+
+    @Query("SELECT new ma.fstt.paymentservice.domain.repository.ExpiryDeadline(t.id, t.createdAt) " +
+           "FROM TransactionRecord t WHERE t.status = :status")
+    List<ExpiryDeadline> findCreationTimesByStatus(@Param("status") TransactionStatusEnum status);
+
+    @Query("SELECT new ma.fstt.paymentservice.domain.repository.ExpiryDeadline(t.id, t.createdAt) " +
+           "FROM TransactionRecord t WHERE t.id IN :ids AND t.status = :status")
+    List<ExpiryDeadline> findCreationTimesByIdInAndStatus(@Param("ids") Collection<Long> ids,
+                                                          @Param("status") TransactionStatusEnum status);
+
+    // Only rows still pending and created before the cutoff; a paid intent is left alone
+    @Modifying
+    @Query("UPDATE TransactionRecord t SET t.status = :to " +
+           "WHERE t.id IN :ids AND t.status = :from AND t.createdAt <= :cutoff")
+    int transitionStatus(@Param("ids") Collection<Long> ids,
+                         @Param("from") TransactionStatusEnum from,
+                         @Param("to") TransactionStatusEnum to,
+                         @Param("cutoff") ZonedDateTime cutoff);
 }
 
 
@@ -0,0 +1,63 @@
+package ma.fstt.paymentservice.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes Hibernate second-level cache statistics per region. Needs
+ * {@code hibernate.generate_statistics}; without it every value stays at zero.
+ */
+public class EntityCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<String> regions;
+
+    public EntityCacheMetrics(EntityManagerFactory entityManagerFactory, String... regions) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.regions = List.of(regions);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : regions) {
+            requests(registry, statistics, region, "hit", CacheRegionStatistics::getHitCount);
+            requests(registry, statistics, region, "miss", CacheRegionStatistics::getMissCount);
+            FunctionCounter.builder("payments_entity_cache_puts_total", statistics,
+                            s -> regionStatistics(s, region, CacheRegionStatistics::getPutCount))
+                    .description("Entities written into the second-level cache")
+                    .tag("region", region)
+                    .register(registry);
+            Gauge.builder("payments_entity_cache_size", statistics,
+                            s -> regionStatistics(s, region, CacheRegionStatistics::getElementCountInMemory))
+                    .description("Entries held in a second-level cache region, if the provider reports it")
+                    .tag("region", region)
+                    .register(registry);
+        }
+    }
+
+    private static void requests(MeterRegistry registry, Statistics statistics, String region, String result,
+            ToDoubleFunction<CacheRegionStatistics> count) {
+        FunctionCounter.builder("payments_entity_cache_requests_total", statistics,
+                        s -> regionStatistics(s, region, count))
+                .description("Second-level cache lookups by region and result")
+                .tag("region", region)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static double regionStatistics(Statistics statistics, String region,
+            ToDoubleFunction<CacheRegionStatistics> value) {
+        CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+        return regionStatistics != null ? value.applyAsDouble(regionStatistics) : 0.0;
+    }
+}
@@ -47,6 +47,38 @@ public class PaymentsMetrics {
                 .increment();
     }
 
+    public void incrementOutboxDelivery(String result) {
+        Counter.builder("payments_booking_outbox_deliveries_total")
+                .description("Booking status outbox delivery attempts by result")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    public void incrementIntentCache(String result) {
+        Counter.builder("payments_intent_cache_requests_total")
+                .description("Pre-computed payment intent lookups by result")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    public void incrementPropertySnapshotCache(String result) {
+        Counter.builder("payments_property_snapshot_cache_requests_total")
+                .description("Property snapshot lookups by result")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    public void incrementPropertyClientCache(String result) {
+        Counter.builder("payments_property_client_cache_requests_total")
+                .description("Property-service client lookups by cache result")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
     public void updateListenerLag(long lagBlocks) {
         listenerLagBlocks.set(lagBlocks);
     }
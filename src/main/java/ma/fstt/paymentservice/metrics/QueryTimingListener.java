@@ -0,0 +1,88 @@
+package ma.fstt.paymentservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Times every JDBC execution into {@code payments_db_query_seconds}, tagged by repository
+ * method and statement type. Statements slower than the threshold are logged at WARN, a sample
+ * of the rest at DEBUG. Only the SQL text is logged; bind values are never included.
+ */
+@Slf4j
+public class QueryTimingListener implements QueryExecutionListener {
+
+    private final MeterRegistry registry;
+    private final long slowThresholdMs;
+    private final double sampleRate;
+
+    public QueryTimingListener(MeterRegistry registry, long slowThresholdMs, double sampleRate) {
+        this.registry = registry;
+        this.slowThresholdMs = slowThresholdMs;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String method = RepositoryMethodTracker.current();
+        String type = statementType(queryInfoList);
+        long elapsedMs = execInfo.getElapsedTime();
+
+        Timer.builder("payments_db_query_seconds")
+                .description("JDBC statement execution time by repository method")
+                .tag("method", method)
+                .tag("type", type)
+                .tag("success", String.valueOf(execInfo.isSuccess()))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(Duration.ofMillis(elapsedMs));
+
+        if (elapsedMs >= slowThresholdMs) {
+            Counter.builder("payments_db_slow_queries_total")
+                    .description("JDBC statements slower than the slow-query threshold")
+                    .tag("method", method)
+                    .register(registry)
+                    .increment();
+            log.warn("Slow query ({} ms, method={}, batch={}, params redacted): {}",
+                    elapsedMs, method, batchSize(execInfo), sql(queryInfoList));
+        } else if (log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.debug("Sampled query ({} ms, method={}, batch={}, params redacted): {}",
+                    elapsedMs, method, batchSize(execInfo), sql(queryInfoList));
+        }
+    }
+
+    private static int batchSize(ExecutionInfo execInfo) {
+        return execInfo.isBatch() ? execInfo.getBatchSize() : 1;
+    }
+
+    private static String sql(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+    }
+
+    static String statementType(List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return "other";
+        }
+        String sql = queryInfoList.get(0).getQuery().stripLeading().toLowerCase(Locale.ROOT);
+        for (String type : new String[] {"select", "insert", "update", "delete"}) {
+            if (sql.startsWith(type)) {
+                return type;
+            }
+        }
+        return sql.startsWith("with") ? "select" : "other";
+    }
+}
@@ -0,0 +1,43 @@
+package ma.fstt.paymentservice.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Remembers which repository method the current thread is executing, so that JDBC statements
+ * can be attributed to it. Statements issued outside a repository call (e.g. flushes at commit)
+ * are reported as {@link #NONE}.
+ */
+public final class RepositoryMethodTracker implements MethodInterceptor {
+
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final String repositoryName;
+
+    public RepositoryMethodTracker(Class<?> repositoryInterface) {
+        this.repositoryName = repositoryInterface.getSimpleName();
+    }
+
+    public static String current() {
+        String method = CURRENT.get();
+        return method != null ? method : NONE;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String previous = CURRENT.get();
+        // Keep the outermost call when a default method delegates to another repository method
+        if (previous == null) {
+            CURRENT.set(repositoryName + "." + invocation.getMethod().getName());
+        }
+        try {
+            return invocation.proceed();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+-- Schema as previously generated by hibernate ddl-auto=update.
+-- IF NOT EXISTS keeps this a no-op on databases that already have the tables.
+
+CREATE TABLE IF NOT EXISTS users (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name          VARCHAR(100)     NOT NULL,
+    last_name           VARCHAR(100)     NOT NULL,
+    email               VARCHAR(255)     NOT NULL UNIQUE,
+    password            VARCHAR(255)     NOT NULL,
+    personal_id         VARCHAR(80),
+    birthday            DATE,
+    phone_number        BIGINT,
+    wallet_address      VARCHAR,
+    is_enabled          BOOLEAN          NOT NULL,
+    score               INTEGER          DEFAULT 100 NOT NULL,
+    penalty_points      INTEGER          DEFAULT 0 NOT NULL,
+    is_suspended        BOOLEAN          DEFAULT FALSE NOT NULL,
+    suspension_reason   VARCHAR,
+    suspension_until    TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS properties (
+    id                      VARCHAR(255)     PRIMARY KEY,
+    user_id                 VARCHAR(255),
+    daily_price             DOUBLE PRECISION NOT NULL,
+    deposit_amount          DOUBLE PRECISION DEFAULT 0.0 NOT NULL,
+    capacity                INTEGER          NOT NULL,
+    title                   VARCHAR(255)     NOT NULL,
+    description             VARCHAR(255)     NOT NULL,
+    bedrooms                INTEGER,
+    bathrooms               INTEGER,
+    number_of_bedrooms      INTEGER          DEFAULT 1 NOT NULL,
+    number_of_bathrooms     INTEGER          DEFAULT 1 NOT NULL,
+    number_of_beds          INTEGER          DEFAULT 1 NOT NULL,
+    address                 VARCHAR(255),
+    city                    VARCHAR(120),
+    country                 VARCHAR(120),
+    latitude                DOUBLE PRECISION,
+    longitude               DOUBLE PRECISION,
+    max_negotiation_percent INTEGER,
+    negotiation_percentage  DOUBLE PRECISION NOT NULL,
+    price                   DOUBLE PRECISION NOT NULL,
+    status                  VARCHAR(255)     NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id                            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id                       BIGINT           NOT NULL,
+    property_id                   VARCHAR(255),
+    check_in_date                 DATE             NOT NULL,
+    check_out_date                DATE             NOT NULL,
+    on_chain_tx_hash              VARCHAR,
+    status                        VARCHAR(50)      NOT NULL,
+    total_price                   DOUBLE PRECISION,
+    created_at                    TIMESTAMP        NOT NULL,
+    updated_at                    TIMESTAMP,
+    long_stay_discount_percent    INTEGER,
+    requested_negotiation_percent INTEGER,
+    negotiation_expires_at        TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    booking_id  BIGINT,
+    user_id     BIGINT                   NOT NULL,
+    tx_hash     VARCHAR,
+    amount      NUMERIC(15, 2)           NOT NULL,
+    status      VARCHAR(20)              NOT NULL,
+    created_at  TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS booking_status_outbox (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    booking_id       BIGINT      NOT NULL UNIQUE,
+    status           VARCHAR(50) NOT NULL,
+    state            VARCHAR(20) NOT NULL,
+    attempts         INTEGER     NOT NULL,
+    next_attempt_at  TIMESTAMP   NOT NULL,
+    last_error       VARCHAR,
+    created_at       TIMESTAMP   NOT NULL,
+    version          BIGINT      NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_status_outbox_due ON booking_status_outbox (state, next_attempt_at);
@@ -0,0 +1,17 @@
+-- Indexes for the lookups on the payment hot path.
+-- On large tables these can be built beforehand with CREATE INDEX CONCURRENTLY under the
+-- same names; IF NOT EXISTS then turns this migration into a no-op.
+
+-- TransactionRepository.findByTxHash
+CREATE INDEX IF NOT EXISTS idx_transactions_tx_hash ON transactions (tx_hash);
+
+-- TransactionRepository.findFirstByBookingIdOrderByCreatedAtDesc
+CREATE INDEX IF NOT EXISTS idx_transactions_booking_created ON transactions (booking_id, created_at);
+
+-- BookingRepository.findOverlappingBookings / findByPropertyId (supersedes the 3-column index)
+CREATE INDEX IF NOT EXISTS idx_bookings_property_dates_status
+    ON bookings (property_id, check_in_date, check_out_date, status);
+DROP INDEX IF EXISTS idx_bookings_property_dates;
+
+-- Wallet address lookups
+CREATE INDEX IF NOT EXISTS idx_users_wallet_address ON users (wallet_address);
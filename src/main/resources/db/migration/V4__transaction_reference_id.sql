@@ -0,0 +1,3 @@
+-- Reference id returned by POST /intent, previously folded into tx_hash as "pending-<uuid>".
+-- V3 adds the column and backfills it from those placeholders before tx_hash becomes binary.
+CREATE UNIQUE INDEX idx_transactions_reference_id ON transactions (reference_id);
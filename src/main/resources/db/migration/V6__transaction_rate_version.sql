@@ -0,0 +1,2 @@
+-- MAD/ETH rate version each payment intent was priced with; NULL for intents created before rates were versioned
+ALTER TABLE transactions ADD COLUMN rate_version VARCHAR(64);
@@ -0,0 +1,7 @@
+-- Startup load of the expiry scheduler (same CONCURRENTLY note as V2)
+
+-- BookingRepository.findNegotiationDeadlines
+CREATE INDEX IF NOT EXISTS idx_bookings_status_negotiation_expiry ON bookings (status, negotiation_expires_at);
+
+-- TransactionRepository.findCreationTimesByStatus
+CREATE INDEX IF NOT EXISTS idx_transactions_status_created ON transactions (status, created_at);
@@ -2,7 +2,19 @@ package ma.fstt.paymentservice.api.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ma.fstt.paymentservice.api.dto.PaymentIntentRequest;
+import ma.fstt.paymentservice.core.blockchain.BookingPaymentContractService;
+import ma.fstt.paymentservice.core.messaging.BookingIdDispatcher;
+import ma.fstt.paymentservice.core.messaging.BookingStatusRelay;
+import ma.fstt.paymentservice.core.messaging.DeliveryDeduplicator;
 import ma.fstt.paymentservice.core.orchestrator.PaymentOrchestrator;
+import ma.fstt.paymentservice.core.service.BookingDetailsLoader;
+import ma.fstt.paymentservice.core.service.EntityCacheEvictor;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler;
+import ma.fstt.paymentservice.core.service.PaymentIntentCache;
+import ma.fstt.paymentservice.core.service.PropertyDatabaseService;
+import ma.fstt.paymentservice.core.service.PropertyLockManager;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.entity.TransactionRecord;
 import ma.fstt.paymentservice.domain.repository.BookingRepository;
 import ma.fstt.paymentservice.domain.repository.PropertyRepository;
 import ma.fstt.paymentservice.domain.repository.TransactionRepository;
@@ -17,14 +29,26 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import ma.fstt.paymentservice.config.ReplicaLagGuard;
 import ma.fstt.paymentservice.config.SecurityConfig;
 import ma.fstt.paymentservice.exception.GlobalExceptionHandler;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(
@@ -58,6 +82,39 @@ class PaymentIntentControllerTest {
     @MockBean
     private PropertyRepository propertyRepository;
 
+    @MockBean
+    private BookingIdDispatcher bookingIdDispatcher;
+
+    @MockBean
+    private BookingStatusRelay bookingStatusRelay;
+
+    @MockBean
+    private PropertyDatabaseService propertyDatabaseService;
+
+    @MockBean
+    private PaymentIntentCache paymentIntentCache;
+
+    @MockBean
+    private BookingPaymentContractService contractService;
+
+    @MockBean
+    private PropertyLockManager propertyLockManager;
+
+    @MockBean
+    private DeliveryDeduplicator deliveryDeduplicator;
+
+    @MockBean
+    private ReplicaLagGuard replicaLagGuard;
+
+    @MockBean
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @MockBean
+    private BookingDetailsLoader bookingDetailsLoader;
+
+    @MockBean
+    private ExpiryScheduler expiryScheduler;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -100,5 +157,115 @@ class PaymentIntentControllerTest {
                 .andExpect(jsonPath("$.code").exists())
                 .andExpect(jsonPath("$.message").exists());
     }
-}
 
+    @Test
+    void testCreatePaymentIntents_ReturnsIntentsAndPerItemErrors() throws Exception {
+        PaymentOrchestrator.BatchIntentItem paid = PaymentOrchestrator.BatchIntentItem.builder()
+                .bookingId(1L)
+                .intent(PaymentOrchestrator.PaymentIntentResponse.builder()
+                        .referenceId(UUID.randomUUID())
+                        .to("0x1234567890123456789012345678901234567890")
+                        .value("1000000000000000000")
+                        .chainId(31337L)
+                        .totalAmountWei("1000000000000000000")
+                        .rateVersion("static:35000")
+                        .build())
+                .build();
+        PaymentOrchestrator.BatchIntentItem missing = PaymentOrchestrator.BatchIntentItem.builder()
+                .bookingId(2L)
+                .errorCode("BOOKING_NOT_FOUND")
+                .errorMessage("Booking not found: 2")
+                .build();
+        when(paymentOrchestrator.createPaymentIntents(List.of(1L, 2L))).thenReturn(List.of(paid, missing));
+
+        mockMvc.perform(post("/api/payments/intents")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookingIds\":[1,2]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bookingId").value(1))
+                .andExpect(jsonPath("$[0].intent.rateVersion").value("static:35000"))
+                .andExpect(jsonPath("$[1].code").value("BOOKING_NOT_FOUND"))
+                .andExpect(jsonPath("$[1].intent").doesNotExist());
+    }
+
+    @Test
+    void testCreatePaymentIntents_EmptyRequest() throws Exception {
+        mockMvc.perform(post("/api/payments/intents")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookingIds\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    void testGetPaymentIntent_ByReferenceId() throws Exception {
+        UUID referenceId = UUID.randomUUID();
+        TransactionRecord transaction = new TransactionRecord();
+        transaction.setReferenceId(referenceId);
+        transaction.setBookingId(123L);
+        transaction.setAmount(new BigDecimal("4500.00"));
+
+        when(transactionRepository.findByReferenceId(referenceId)).thenReturn(Optional.of(transaction));
+
+        mockMvc.perform(get("/api/payments/intent/" + referenceId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.referenceId").value(referenceId.toString()))
+                .andExpect(jsonPath("$.bookingId").value(123))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void testGetPaymentIntent_InvalidReferenceId() throws Exception {
+        mockMvc.perform(get("/api/payments/intent/pending-123"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_REFERENCE_ID"));
+    }
+
+    @Test
+    void testGetBookingId_RequiresTenantId() throws Exception {
+        mockMvc.perform(get("/api/payments/booking-id"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("TENANT_ID_REQUIRED"));
+
+        verify(bookingIdDispatcher, never()).await(any());
+    }
+
+    @Test
+    void testUpdateTransactionHash_RequiresReferenceId() throws Exception {
+        mockMvc.perform(put("/api/payments/booking/123/tx-hash")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"txHash\":\"0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("REFERENCE_ID_REQUIRED"));
+
+        verify(transactionRepository, never()).findFirstByBookingIdOrderByCreatedAtDesc(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateTransactionHash_LoadsTheBookingOnce() throws Exception {
+        UUID referenceId = UUID.randomUUID();
+        TransactionRecord transaction = new TransactionRecord();
+        transaction.setReferenceId(referenceId);
+        transaction.setBookingId(123L);
+        Booking booking = new Booking();
+        booking.setId(123L);
+        booking.setPropertyId("prop-1");
+        booking.setStatus("PENDING_PAYMENT");
+        String txHash = "0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060";
+
+        when(transactionRepository.findByReferenceId(referenceId)).thenReturn(Optional.of(transaction));
+        when(bookingRepository.findById(123L)).thenReturn(Optional.of(booking));
+        when(propertyLockManager.withPropertyLock(eq("prop-1"), any()))
+                .thenAnswer(invocation -> ((Supplier<Boolean>) invocation.getArgument(1)).get());
+        when(paymentOrchestrator.confirmBooking(booking, txHash)).thenReturn(true);
+
+        mockMvc.perform(put("/api/payments/booking/123/tx-hash")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"txHash\":\"" + txHash + "\",\"referenceId\":\"" + referenceId + "\"}"))
+                .andExpect(status().isOk());
+
+        verify(bookingRepository, times(1)).findById(123L);
+        verify(paymentOrchestrator).confirmBooking(same(booking), eq(txHash));
+    }
+}
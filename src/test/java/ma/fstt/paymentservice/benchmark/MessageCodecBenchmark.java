@@ -0,0 +1,104 @@
+package ma.fstt.paymentservice.benchmark;
+
+import ma.fstt.paymentservice.core.messaging.BookingCreatedConsumer.BookingCreatedMessage;
+import ma.fstt.paymentservice.core.messaging.CompactBinaryMessageConverter;
+import ma.fstt.paymentservice.core.messaging.PaymentEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of the JSON and compact binary AMQP codecs. Payload sizes are printed at setup.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ma.fstt.paymentservice.benchmark.MessageCodecBenchmark}; JMH options can be passed
+ * through {@code -Dexec.args}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private MessageConverter converter;
+    private BookingCreatedMessage bookingCreated;
+    private PaymentEvent paymentEvent;
+    private Message encodedBookingCreated;
+    private Message encodedPaymentEvent;
+
+    @Setup
+    public void setUp() {
+        converter = "binary".equals(codec) ? new CompactBinaryMessageConverter() : new Jackson2JsonMessageConverter();
+
+        bookingCreated = new BookingCreatedMessage();
+        bookingCreated.setBookingId(1_234_567L);
+        bookingCreated.setTenantId(42L);
+        bookingCreated.setOwnerId(7L);
+        bookingCreated.setPropertyId(98_765L);
+        bookingCreated.setFinalRentAmount(new BigDecimal("4500.00"));
+        bookingCreated.setDepositAmount(new BigDecimal("1000.00"));
+        bookingCreated.setStatus("PENDING_PAYMENT");
+
+        paymentEvent = PaymentEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(PaymentEvent.PAYMENT_CONFIRMED)
+                .bookingId(1_234_567L)
+                .txHash("0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060")
+                .amountWei("157142857142857142")
+                .recipientAddress("0xf39Fd6e51aad88F6F4ce6aB8827279cffFb92266")
+                .occurredAt(System.currentTimeMillis())
+                .build();
+
+        encodedBookingCreated = converter.toMessage(bookingCreated, properties());
+        encodedPaymentEvent = converter.toMessage(paymentEvent, properties());
+        System.out.printf("%n[%s] booking.created payload: %d bytes, payment event payload: %d bytes%n",
+                codec, encodedBookingCreated.getBody().length, encodedPaymentEvent.getBody().length);
+    }
+
+    @Benchmark
+    public Message encodeBookingCreated() {
+        return converter.toMessage(bookingCreated, properties());
+    }
+
+    @Benchmark
+    public Object decodeBookingCreated() {
+        return converter.fromMessage(encodedBookingCreated);
+    }
+
+    @Benchmark
+    public Message encodePaymentEvent() {
+        return converter.toMessage(paymentEvent, properties());
+    }
+
+    @Benchmark
+    public Object decodePaymentEvent() {
+        return converter.fromMessage(encodedPaymentEvent);
+    }
+
+    private static MessageProperties properties() {
+        return new MessageProperties();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(MessageCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,216 @@
+package ma.fstt.paymentservice.benchmark;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import ma.fstt.paymentservice.domain.entity.TransactionRecord;
+import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
+import org.flywaydb.core.Flyway;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts and then updates 100k transaction rows through Hibernate, comparing the previous
+ * mapping (identity ids, no JDBC batching) with pooled sequence ids and batched writes.
+ * <p>
+ * Defaults to in-memory H2. For PostgreSQL pass a dedicated, disposable database, since the
+ * schema is cleaned before each trial: {@code -p url=jdbc:postgresql://localhost:5432/bench?reWriteBatchedInserts=true
+ * -p user=postgres -p password=...}.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ma.fstt.paymentservice.benchmark.TransactionWriteBenchmark -Dexec.args="-f 0"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TransactionWriteBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"jdbc:h2:mem:tx-write-bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"})
+    public String url;
+
+    @Param({"sa"})
+    public String user;
+
+    @Param({""})
+    public String password;
+
+    /** {@code before}: identity ids, no batching; {@code after}: pooled sequence ids, batch size 50. */
+    @Param({"before", "after"})
+    public String mapping;
+
+    private SessionFactory sessionFactory;
+    private List<Long> insertedIds;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .table("payments_schema_history")
+                .locations("classpath:db/migration", "classpath:ma/fstt/paymentservice/domain/migration")
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        boolean after = "after".equals(mapping);
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(after ? TransactionRecord.class : IdentityTransactionRecord.class)
+                .setProperty("hibernate.connection.url", url)
+                .setProperty("hibernate.connection.username", user)
+                .setProperty("hibernate.connection.password", password)
+                .setProperty("hibernate.hbm2ddl.auto", "none")
+                .setProperty("hibernate.jdbc.batch_size", after ? "50" : "0")
+                .setProperty("hibernate.order_inserts", String.valueOf(after))
+                .setProperty("hibernate.order_updates", String.valueOf(after))
+                .buildSessionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        sessionFactory.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM transactions");
+        }
+        insertedIds = null;
+    }
+
+    @Benchmark
+    public int insertThenUpdate() {
+        insertedIds = insertRows();
+        return updateRows(insertedIds);
+    }
+
+    private List<Long> insertRows() {
+        List<Long> ids = new ArrayList<>(ROWS);
+        List<Object> chunk = new ArrayList<>(50);
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < ROWS; i++) {
+                Object row = newRow(i);
+                session.persist(row);
+                chunk.add(row);
+                if (chunk.size() == 50 || i == ROWS - 1) {
+                    session.flush();
+                    chunk.forEach(r -> ids.add(idOf(r)));
+                    chunk.clear();
+                    session.clear();
+                }
+            }
+            session.getTransaction().commit();
+        }
+        return ids;
+    }
+
+    private int updateRows(List<Long> ids) {
+        Class<?> entity = "after".equals(mapping) ? TransactionRecord.class : IdentityTransactionRecord.class;
+        int updated = 0;
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int from = 0; from < ids.size(); from += 50) {
+                List<?> rows = session.byMultipleIds(entity).multiLoad(ids.subList(from, Math.min(from + 50, ids.size())));
+                for (Object row : rows) {
+                    setStatus(row, TransactionStatusEnum.SUCCESS);
+                    updated++;
+                }
+                session.flush();
+                session.clear();
+            }
+            session.getTransaction().commit();
+        }
+        return updated;
+    }
+
+    private Object newRow(int i) {
+        if ("after".equals(mapping)) {
+            TransactionRecord row = new TransactionRecord();
+            row.setBookingId((long) i);
+            row.setUserId(1L);
+            row.setAmount(new BigDecimal("4500.00"));
+            row.setStatus(TransactionStatusEnum.PENDING);
+            return row;
+        }
+        IdentityTransactionRecord row = new IdentityTransactionRecord();
+        row.bookingId = (long) i;
+        row.userId = 1L;
+        row.amount = new BigDecimal("4500.00");
+        row.status = TransactionStatusEnum.PENDING;
+        row.createdAt = ZonedDateTime.now();
+        return row;
+    }
+
+    private static Long idOf(Object row) {
+        return row instanceof TransactionRecord tx ? tx.getId() : ((IdentityTransactionRecord) row).id;
+    }
+
+    private static void setStatus(Object row, TransactionStatusEnum status) {
+        if (row instanceof TransactionRecord tx) {
+            tx.setStatus(status);
+        } else {
+            ((IdentityTransactionRecord) row).status = status;
+        }
+    }
+
+    /** The transactions mapping as it was before pooled sequences. */
+    @Entity
+    @Table(name = "transactions")
+    public static class IdentityTransactionRecord {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @Column(name = "booking_id")
+        Long bookingId;
+
+        @Column(name = "user_id", nullable = false)
+        Long userId;
+
+        @Column(name = "amount", nullable = false, precision = 15, scale = 2)
+        BigDecimal amount;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "status", nullable = false, length = 20)
+        TransactionStatusEnum status;
+
+        @Column(name = "created_at", nullable = false, updatable = false)
+        ZonedDateTime createdAt;
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(TransactionWriteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
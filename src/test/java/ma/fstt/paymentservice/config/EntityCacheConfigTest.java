@@ -0,0 +1,79 @@
+package ma.fstt.paymentservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import ma.fstt.paymentservice.core.service.EntityCacheEvictor;
+import ma.fstt.paymentservice.domain.entity.EntityCacheRegions;
+import ma.fstt.paymentservice.domain.entity.UserAccount;
+import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
+import ma.fstt.paymentservice.metrics.EntityCacheMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EntityCacheConfig.class, EntityCacheEvictor.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:entity-cache;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class EntityCacheConfigTest {
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityCacheMetrics entityCacheMetrics;
+
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Test
+    void servesRepeatedUserLookupsFromSecondLevelCacheUntilEvicted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        entityCacheMetrics.bindTo(registry);
+        Long id = userAccountRepository.save(user("cache@example.com")).getId();
+        entityManagerFactory.getCache().evictAll();
+
+        userAccountRepository.findById(id);
+        userAccountRepository.findById(id);
+
+        assertThat(requests(registry, "miss")).isEqualTo(1.0);
+        assertThat(requests(registry, "hit")).isEqualTo(1.0);
+
+        entityCacheEvictor.evictUser(id);
+        assertThat(entityManagerFactory.getCache().contains(UserAccount.class, id)).isFalse();
+    }
+
+    private static double requests(SimpleMeterRegistry registry, String result) {
+        return registry.get("payments_entity_cache_requests_total")
+                .tag("region", EntityCacheRegions.USERS)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    private static UserAccount user(String email) {
+        UserAccount user = new UserAccount();
+        user.setFirstName("Amal");
+        user.setLastName("Idrissi");
+        user.setEmail(email);
+        user.setPassword("secret");
+        return user;
+    }
+}
@@ -0,0 +1,118 @@
+package ma.fstt.paymentservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private ReplicaLagGuard guard;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        guard = new ReplicaLagGuard(registry, 60_000, 1_000);
+        guard.monitor(replica, "SELECT lag_seconds FROM marker");
+
+        DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, guard, registry));
+        jdbc = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.release();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplicaAndOthersUsePrimary() {
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+        assertThat(inReadWriteTransaction()).isEqualTo("primary");
+        assertThat(whichDatabase()).isEqualTo("primary");
+    }
+
+    @Test
+    void recentlyWrittenBookingIsReadFromPrimary() {
+        guard.recordWrite(42L);
+
+        guard.pinIfRecentlyWritten(7L);
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+
+        guard.pinIfRecentlyWritten(42L);
+        assertThat(inReadOnlyTransaction()).isEqualTo("primary");
+
+        guard.release();
+        assertThat(inReadOnlyTransaction()).isEqualTo("replica");
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        new JdbcTemplate(database("replica")).update("UPDATE marker SET lag_seconds = 5");
+
+        guard.probeLag();
+
+        assertThat(inReadOnlyTransaction()).isEqualTo("primary");
+    }
+
+    @Test
+    void primaryPoolUsesTheSpringDatasourceHikariSettings() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:h2:mem:routing-hikari");
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximum-pool-size", "42")
+                .withProperty("spring.datasource.hikari.connection-timeout", "1500");
+
+        try (HikariDataSource primary = ReadReplicaConfig.primaryDataSource(properties, environment)) {
+            assertThat(primary.getMaximumPoolSize()).isEqualTo(42);
+            assertThat(primary.getConnectionTimeout()).isEqualTo(1500);
+            assertThat(primary.getPoolName()).isEqualTo("primary");
+            assertThat(primary.getJdbcUrl()).isEqualTo("jdbc:h2:mem:routing-hikari");
+        }
+    }
+
+    private String inReadOnlyTransaction() {
+        return readOnly.execute(status -> whichDatabase());
+    }
+
+    private String inReadWriteTransaction() {
+        return readWrite.execute(status -> whichDatabase());
+    }
+
+    private String whichDatabase() {
+        return jdbc.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS marker (name VARCHAR(20), lag_seconds DOUBLE PRECISION)");
+        if (jdbc.queryForObject("SELECT COUNT(*) FROM marker", Integer.class) == 0) {
+            jdbc.update("INSERT INTO marker VALUES (?, 0)", name);
+        }
+        return dataSource;
+    }
+}
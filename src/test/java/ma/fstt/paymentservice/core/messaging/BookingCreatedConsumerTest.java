@@ -0,0 +1,132 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.config.RabbitMQConfig;
+import ma.fstt.paymentservice.core.messaging.BookingCreatedConsumer.BookingCreatedMessage;
+import ma.fstt.paymentservice.core.orchestrator.PaymentOrchestrator;
+import ma.fstt.paymentservice.core.service.BookingAvailabilityIndex;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler;
+import ma.fstt.paymentservice.core.service.NegativeLookupCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class BookingCreatedConsumerTest {
+
+    private BookingAvailabilityIndex bookingAvailabilityIndex;
+    private BookingIdDispatcher bookingIdDispatcher;
+    private ExpiryScheduler expiryScheduler;
+    private SimpleMeterRegistry registry;
+    private Channel channel;
+    private BookingCreatedConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        bookingAvailabilityIndex = mock(BookingAvailabilityIndex.class);
+        registry = new SimpleMeterRegistry();
+        channel = mock(Channel.class);
+        bookingIdDispatcher = mock(BookingIdDispatcher.class);
+        expiryScheduler = mock(ExpiryScheduler.class);
+        DeliveryDeduplicator deliveryDeduplicator = new DeliveryDeduplicator(registry, 600, 1000, 0.01, 1000);
+        consumer = new BookingCreatedConsumer(bookingAvailabilityIndex, mock(PaymentOrchestrator.class),
+                bookingIdDispatcher, deliveryDeduplicator, new NegativeLookupCache(registry, 2000, 1000, 1000),
+                expiryScheduler, new RabbitMQConfig().messageConverter(), registry);
+    }
+
+    @Test
+    void acksProcessedMessagesAndPublishesBookingIds() throws Exception {
+        consumer.handleBookingCreated(List.of(message(1L, 11L, false), message(2L, 12L, false)), channel);
+
+        verify(channel).basicAck(11L, false);
+        verify(channel).basicAck(12L, false);
+        verify(bookingIdDispatcher).publish(500L, 1L);
+        verify(bookingIdDispatcher).publish(500L, 2L);
+        assertThat(registry.counter("payments_booking_created_consumed_total", "result", "processed").count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void requeuesFirstFailureAndRejectsRedelivery() throws Exception {
+        doThrow(new IllegalStateException("boom")).when(bookingAvailabilityIndex).invalidate("100");
+
+        consumer.handleBookingCreated(List.of(message(1L, 21L, false), message(1L, 22L, true)), channel);
+
+        verify(channel).basicNack(21L, false, true);
+        verify(channel).basicNack(22L, false, false);
+        verifyNoInteractions(bookingIdDispatcher);
+    }
+
+    @Test
+    void acksRedeliveredBookingWithoutReprocessing() throws Exception {
+        consumer.handleBookingCreated(List.of(message(3L, 31L, false)), channel);
+        consumer.handleBookingCreated(List.of(message(3L, 32L, true)), channel);
+
+        verify(channel).basicAck(31L, false);
+        verify(channel).basicAck(32L, false);
+        verify(bookingIdDispatcher, times(1)).publish(500L, 3L);
+        assertThat(registry.counter("payments_booking_created_consumed_total", "result", "duplicate").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void schedulesNegotiationExpiryCarriedByTheMessage() throws Exception {
+        Message negotiating = message("{\"bookingId\":4,\"propertyId\":100,\"tenantId\":500,"
+                + "\"negotiationExpiresAt\":1700000000000}", 41L, false);
+
+        consumer.handleBookingCreated(List.of(negotiating, message(5L, 42L, false)), channel);
+
+        verify(expiryScheduler).scheduleNegotiation(4L, Instant.ofEpochMilli(1_700_000_000_000L));
+        verify(expiryScheduler, never()).scheduleNegotiation(eq(5L), any());
+    }
+
+    @Test
+    void rejectsUnreadableMessagesWithoutHoldingUpTheBatch() throws Exception {
+        BookingCreatedMessage binaryPayload = new BookingCreatedMessage();
+        binaryPayload.setBookingId(7L);
+        binaryPayload.setTenantId(500L);
+        MessageProperties binaryProperties = new MessageProperties();
+        binaryProperties.setDeliveryTag(53L);
+        Message binary = new CompactBinaryMessageConverter().toMessage(binaryPayload, binaryProperties);
+
+        consumer.handleBookingCreated(List.of(message("not json", 51L, false), message(6L, 52L, false), binary),
+                channel);
+
+        verify(channel).basicNack(51L, false, false);
+        verify(channel).basicAck(52L, false);
+        verify(channel).basicAck(53L, false);
+        verify(bookingIdDispatcher).publish(500L, 6L);
+        verify(bookingIdDispatcher).publish(500L, 7L);
+        assertThat(registry.counter("payments_booking_created_consumed_total", "result", "unreadable").count())
+                .isEqualTo(1.0);
+    }
+
+    private static Message message(Long bookingId, long deliveryTag, boolean redelivered) {
+        return message("{\"bookingId\":" + bookingId + ",\"propertyId\":100,\"tenantId\":500}",
+                deliveryTag, redelivered);
+    }
+
+    // booking-service sends plain JSON without a type id header
+    private static Message message(String json, long deliveryTag, boolean redelivered) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryTag(deliveryTag);
+        properties.setRedelivered(redelivered);
+        return new Message(json.getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
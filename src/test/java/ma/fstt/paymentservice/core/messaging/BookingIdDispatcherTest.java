@@ -0,0 +1,96 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookingIdDispatcherTest {
+
+    private SimpleMeterRegistry registry;
+    private BookingIdDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        dispatcher = new BookingIdDispatcher(registry, 30_000, 60, 100, 2);
+    }
+
+    @Test
+    void completesOnlyTheMatchingTenant() {
+        DeferredResult<ResponseEntity<Map<String, Object>>> alice = dispatcher.await(1L);
+        DeferredResult<ResponseEntity<Map<String, Object>>> bob = dispatcher.await(2L);
+
+        dispatcher.publish(1L, 42L);
+
+        assertThat(bookingIdOf(alice)).isEqualTo(42L);
+        assertThat(bob.hasResult()).isFalse();
+    }
+
+    @Test
+    void queuesIdsPublishedBeforeTheTenantStartsWaitingUpToTheBound() {
+        dispatcher.publish(1L, 41L);
+        dispatcher.publish(1L, 42L);
+        dispatcher.publish(1L, 43L);
+
+        assertThat(bookingIdOf(dispatcher.await(1L))).isEqualTo(42L);
+        assertThat(bookingIdOf(dispatcher.await(1L))).isEqualTo(43L);
+        assertThat(dispatcher.await(1L).hasResult()).isFalse();
+        assertThat(registry.counter("payments_booking_id_queue_dropped_total").count()).isEqualTo(1.0);
+        assertThat(registry.get("payments_booking_id_queue_depth").gauge().value()).isZero();
+    }
+
+    @Test
+    void bookingWithoutTenantIsNotHandedToAnyone() {
+        DeferredResult<ResponseEntity<Map<String, Object>>> waiter = dispatcher.await(7L);
+
+        dispatcher.publish(null, 43L);
+
+        assertThat(waiter.hasResult()).isFalse();
+        assertThat(registry.counter("payments_booking_id_queue_dropped_total").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void everyIdReachesAWaiterWhenRegistrationRacesPublication() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (long round = 0; round < 500; round++) {
+                long tenant = 1_000 + round;
+                long bookingId = round;
+                CountDownLatch start = new CountDownLatch(1);
+                Future<DeferredResult<ResponseEntity<Map<String, Object>>>> waiter = executor.submit(() -> {
+                    start.await();
+                    return dispatcher.await(tenant);
+                });
+                Future<?> publisher = executor.submit(() -> {
+                    start.await();
+                    dispatcher.publish(tenant, bookingId);
+                    return null;
+                });
+                start.countDown();
+                publisher.get(5, TimeUnit.SECONDS);
+
+                assertThat(bookingIdOf(waiter.get(5, TimeUnit.SECONDS))).isEqualTo(bookingId);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(registry.get("payments_booking_id_waiters").gauge().value()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object bookingIdOf(DeferredResult<ResponseEntity<Map<String, Object>>> result) {
+        assertThat(result.hasResult()).isTrue();
+        return ((ResponseEntity<Map<String, Object>>) result.getResult()).getBody().get("bookingId");
+    }
+}
@@ -0,0 +1,88 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import ma.fstt.paymentservice.core.messaging.BookingCreatedConsumer.BookingCreatedMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactBinaryMessageConverterTest {
+
+    private final CompactBinaryMessageConverter binary = new CompactBinaryMessageConverter();
+
+    @Test
+    void roundTripsBookingCreatedAndIsSmallerThanJson() {
+        BookingCreatedMessage message = new BookingCreatedMessage();
+        message.setBookingId(1_234_567L);
+        message.setTenantId(42L);
+        message.setPropertyId(98_765L);
+        message.setFinalRentAmount(new BigDecimal("4500.25"));
+        message.setDepositAmount(new BigDecimal("-0.001"));
+        message.setStatus("PENDING_PAYMENT");
+        message.setNegotiationExpiresAt(1_700_000_000_000L);
+
+        Message encoded = binary.toMessage(message, new MessageProperties());
+        BookingCreatedMessage decoded = (BookingCreatedMessage) binary.fromMessage(encoded);
+
+        assertThat(encoded.getMessageProperties().getContentType()).isEqualTo(CompactBinaryMessageConverter.CONTENT_TYPE);
+        assertThat(decoded.getBookingId()).isEqualTo(1_234_567L);
+        assertThat(decoded.getTenantId()).isEqualTo(42L);
+        assertThat(decoded.getOwnerId()).isNull();
+        assertThat(decoded.getPropertyId()).isEqualTo(98_765L);
+        assertThat(decoded.getFinalRentAmount()).isEqualTo(new BigDecimal("4500.25"));
+        assertThat(decoded.getDepositAmount()).isEqualTo(new BigDecimal("-0.001"));
+        assertThat(decoded.getStatus()).isEqualTo("PENDING_PAYMENT");
+        assertThat(decoded.getNegotiationExpiresAt()).isEqualTo(1_700_000_000_000L);
+
+        Message json = new Jackson2JsonMessageConverter().toMessage(message, new MessageProperties());
+        assertThat(encoded.getBody().length).isLessThan(json.getBody().length / 3);
+    }
+
+    @Test
+    void packsHashesAddressesAndAmountsLosslessly() {
+        PaymentEvent event = PaymentEvent.builder()
+                .eventId("3f2a4c1e-9b7d-4e2a-8c55-0d6f1e2b3a4c")
+                .eventType(PaymentEvent.PAYMENT_CONFIRMED)
+                .bookingId(1L)
+                .txHash("0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060")
+                .amountWei("157142857142857142")
+                .recipientAddress("0xf39Fd6e51aad88F6F4ce6aB8827279cffFb92266")
+                .occurredAt(1_700_000_000_000L)
+                .build();
+
+        // Checksummed (mixed-case) addresses are kept as text so they round-trip unchanged
+        assertThat(binary.fromMessage(binary.toMessage(event, new MessageProperties()))).isEqualTo(event);
+
+        event.setRecipientAddress("0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266");
+        Message encoded = binary.toMessage(event, new MessageProperties());
+
+        assertThat(binary.fromMessage(encoded)).isEqualTo(event);
+        Message json = new Jackson2JsonMessageConverter().toMessage(event, new MessageProperties());
+        assertThat(encoded.getBody().length).isLessThan(json.getBody().length / 2);
+    }
+
+    @Test
+    void delegatingConverterPicksCodecByContentType() {
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter());
+        converter.addDelegate(CompactBinaryMessageConverter.CONTENT_TYPE, binary);
+
+        PaymentEvent event = PaymentEvent.builder()
+                .eventType(PaymentEvent.REFUND_PROCESSED)
+                .bookingId(9L)
+                .amountWei("1000000000000000000")
+                .occurredAt(1_700_000_000_000L)
+                .build();
+
+        Object fromBinary = converter.fromMessage(binary.toMessage(event, new MessageProperties()));
+        Object fromJson = converter.fromMessage(new Jackson2JsonMessageConverter().toMessage(event, new MessageProperties()));
+
+        assertThat(fromBinary).isEqualTo(event);
+        assertThat(fromJson).isEqualTo(event);
+    }
+}
@@ -0,0 +1,45 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryDeduplicatorTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private SimpleMeterRegistry registry;
+    private DeliveryDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        deduplicator = new DeliveryDeduplicator(registry, 60, 1000, 0.01, 1000, now::get);
+    }
+
+    @Test
+    void detectsRecordedKeysPerScopeAndReportsHitRatio() {
+        assertThat(deduplicator.isDuplicate("tx-hash", "1:0xabc")).isFalse();
+        deduplicator.record("tx-hash", "1:0xabc");
+
+        assertThat(deduplicator.isDuplicate("tx-hash", "1:0xabc")).isTrue();
+        assertThat(deduplicator.isDuplicate("tx-hash", "1:0xdef")).isFalse();
+        assertThat(deduplicator.isDuplicate("booking.created", "1:0xabc")).isFalse();
+
+        assertThat(registry.get("payments_dedup_hit_ratio").gauge().value()).isEqualTo(0.25);
+    }
+
+    @Test
+    void keysSurviveOneRotationAndExpireAfterTwo() {
+        deduplicator.record("booking.created", 7L);
+
+        now.set(61_000);
+        assertThat(deduplicator.isDuplicate("booking.created", 7L)).isTrue();
+
+        now.set(122_000);
+        assertThat(deduplicator.isDuplicate("booking.created", 7L)).isFalse();
+    }
+}
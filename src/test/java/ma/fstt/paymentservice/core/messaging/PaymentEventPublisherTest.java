@@ -0,0 +1,119 @@
+package ma.fstt.paymentservice.core.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PaymentEventPublisherTest {
+
+    private RabbitTemplate rabbitTemplate;
+    private SimpleMeterRegistry registry;
+    private PaymentEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        registry = new SimpleMeterRegistry();
+        publisher = new PaymentEventPublisher(rabbitTemplate, registry, 16, "json");
+        ReflectionTestUtils.setField(publisher, "enabled", true);
+        ReflectionTestUtils.setField(publisher, "batchSize", 8);
+        ReflectionTestUtils.setField(publisher, "confirmTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(publisher, "maxAttempts", 3);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.stop();
+    }
+
+    @Test
+    void retriesNackedEventsUntilConfirmed() throws Exception {
+        AtomicInteger sends = new AtomicInteger();
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            // First send of every event is nacked, the retry is acked
+            boolean ack = sends.incrementAndGet() > 2;
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).send(eq(PaymentEventPublisher.EXCHANGE), any(String.class), any(Message.class),
+                any(CorrelationData.class));
+
+        publisher.publish(PaymentEvent.builder().eventType(PaymentEvent.PAYMENT_CONFIRMED).bookingId(1L).build());
+        publisher.publish(PaymentEvent.builder().eventType(PaymentEvent.PAYMENT_CONFIRMED).bookingId(2L).build());
+        publisher.start();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (confirmed() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(confirmed()).isEqualTo(2.0);
+        assertThat(registry.counter("payments_events_published_total",
+                "type", PaymentEvent.PAYMENT_CONFIRMED, "result", "retried").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void sendFailureMidBatchResendsOnlyTheEventsNotYetSent() throws Exception {
+        List<Long> sentBookings = new CopyOnWriteArrayList<>();
+        AtomicInteger sends = new AtomicInteger();
+        doAnswer(invocation -> {
+            // The third send of the first batch fails; events 1 and 2 are already with the broker
+            if (sends.incrementAndGet() == 3) {
+                throw new AmqpException("connection reset");
+            }
+            Message message = invocation.getArgument(2);
+            sentBookings.add(new ObjectMapper().readTree(message.getBody()).get("bookingId").asLong());
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(eq(PaymentEventPublisher.EXCHANGE), any(String.class), any(Message.class),
+                any(CorrelationData.class));
+
+        for (long bookingId = 1; bookingId <= 4; bookingId++) {
+            publisher.publish(PaymentEvent.builder().eventType(PaymentEvent.PAYMENT_CONFIRMED).bookingId(bookingId).build());
+        }
+        publisher.start();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (confirmed() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(confirmed()).isEqualTo(4.0);
+        assertThat(sentBookings).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(registry.counter("payments_events_published_total",
+                "type", PaymentEvent.PAYMENT_CONFIRMED, "result", "retried").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void dropsWhenBufferIsFullInsteadOfBlocking() {
+        for (int i = 0; i < 20; i++) {
+            publisher.publish(PaymentEvent.builder().eventType(PaymentEvent.REFUND_PROCESSED).bookingId((long) i).build());
+        }
+
+        assertThat(registry.counter("payments_events_published_total",
+                "type", PaymentEvent.REFUND_PROCESSED, "result", "dropped").count()).isEqualTo(4.0);
+    }
+
+    private double confirmed() {
+        return registry.counter("payments_events_published_total",
+                "type", PaymentEvent.PAYMENT_CONFIRMED, "result", "confirmed").count();
+    }
+}
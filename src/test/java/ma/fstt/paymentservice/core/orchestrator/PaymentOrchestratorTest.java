@@ -0,0 +1,95 @@
+package ma.fstt.paymentservice.core.orchestrator;
+
+import ma.fstt.paymentservice.config.ReplicaLagGuard;
+import ma.fstt.paymentservice.core.blockchain.BookingPaymentContractService;
+import ma.fstt.paymentservice.core.messaging.BookingStatusRelay;
+import ma.fstt.paymentservice.core.messaging.PaymentEventPublisher;
+import ma.fstt.paymentservice.core.rates.ExchangeRates;
+import ma.fstt.paymentservice.core.service.BookingAvailabilityIndex;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler;
+import ma.fstt.paymentservice.core.service.NegativeLookupCache;
+import ma.fstt.paymentservice.core.service.PaymentIntentCache;
+import ma.fstt.paymentservice.core.service.PropertyDatabaseService;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.TransactionRepository;
+import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentOrchestratorTest {
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final BookingAvailabilityIndex bookingAvailabilityIndex = mock(BookingAvailabilityIndex.class);
+    private final BookingStatusRelay bookingStatusRelay = mock(BookingStatusRelay.class);
+    private final PaymentOrchestrator orchestrator = new PaymentOrchestrator(
+            mock(TransactionRepository.class), bookingRepository, mock(UserAccountRepository.class),
+            mock(BookingPaymentContractService.class), mock(PropertyDatabaseService.class),
+            bookingAvailabilityIndex, bookingStatusRelay, mock(PaymentIntentCache.class),
+            mock(PaymentEventPublisher.class), mock(ReplicaLagGuard.class), mock(NegativeLookupCache.class),
+            mock(ExchangeRates.class), mock(ExpiryScheduler.class));
+
+    @Test
+    void confirmsTheLoadedBookingWithoutReadingItAgain() {
+        Booking booking = booking(7L, "PENDING_PAYMENT");
+        when(bookingRepository.transitionStatus(eq(7L), anyCollection(), eq("CONFIRMED"), any())).thenReturn(1);
+        when(bookingRepository.findOverlappingBookings(any(), anyLong(), any(), any())).thenReturn(new ArrayList<>());
+
+        assertThat(orchestrator.confirmBooking(booking, "0xabc")).isTrue();
+
+        assertThat(booking.getStatus()).isEqualTo("CONFIRMED");
+        verify(bookingRepository, never()).findById(any());
+        verify(bookingRepository, never()).save(any());
+        verify(bookingStatusRelay).enqueue(7L, "CONFIRMED");
+    }
+
+    @Test
+    void cancelsOverlapsFoundInTheDatabaseEvenWhenTheIndexHasNotSeenThem() {
+        Booking booking = booking(7L, "PENDING_PAYMENT");
+        Booking justWritten = booking(8L, "PENDING_PAYMENT");
+        when(bookingRepository.transitionStatus(eq(7L), anyCollection(), eq("CONFIRMED"), any())).thenReturn(1);
+        when(bookingRepository.findOverlappingBookings("prop-1", 7L, booking.getCheckInDate(), booking.getCheckOutDate()))
+                .thenReturn(new ArrayList<>(List.of(justWritten)));
+
+        assertThat(orchestrator.confirmBooking(booking, "0xabc")).isTrue();
+
+        verify(bookingRepository).delete(justWritten);
+        verify(bookingAvailabilityIndex, never()).findOverlappingBookingIds(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void leavesABookingConfirmedElsewhereAlone() {
+        // The caller's copy still says pending, but the row changed before the lock was taken
+        Booking booking = booking(7L, "PENDING_PAYMENT");
+        when(bookingRepository.transitionStatus(eq(7L), anyCollection(), eq("CONFIRMED"), any())).thenReturn(0);
+
+        assertThat(orchestrator.confirmBooking(booking, "0xabc")).isFalse();
+
+        assertThat(booking.getStatus()).isEqualTo("PENDING_PAYMENT");
+        verify(bookingRepository, never()).findById(any());
+        verify(bookingStatusRelay, never()).enqueue(anyLong(), any());
+    }
+
+    private static Booking booking(Long id, String status) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setPropertyId("prop-1");
+        booking.setStatus(status);
+        booking.setCheckInDate(LocalDate.of(2025, 3, 1));
+        booking.setCheckOutDate(LocalDate.of(2025, 3, 5));
+        return booking;
+    }
+}
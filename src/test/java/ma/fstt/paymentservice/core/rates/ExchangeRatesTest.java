@@ -0,0 +1,105 @@
+package ma.fstt.paymentservice.core.rates;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExchangeRatesTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void fixedPointConversionStaysWithinOneWeiOfDecimalConversion() {
+        for (String rate : new String[] {"35000", "34123.57", "0.5", "123456789.123"}) {
+            RateSnapshot snapshot = RateSnapshot.of(new RateQuote("v", new BigDecimal(rate)));
+            for (String amount : new String[] {"0", "0.01", "1", "700.00", "1234.56", "99999999.99", "12.345",
+                    "0.004", "1e3", "0.0000001"}) {
+                BigDecimal mad = new BigDecimal(amount);
+                BigInteger expected = mad.divide(new BigDecimal(rate), 18, RoundingMode.HALF_UP)
+                        .movePointRight(18)
+                        .toBigIntegerExact();
+                assertThat(snapshot.toWei(mad).subtract(expected).abs())
+                        .as("%s MAD at %s MAD/ETH", amount, rate)
+                        .isLessThanOrEqualTo(BigInteger.ONE);
+            }
+        }
+    }
+
+    @Test
+    void oneEthWorthOfMadConvertsToOneEth() {
+        RateSnapshot snapshot = RateSnapshot.of(new RateQuote("v", new BigDecimal("35000")));
+
+        assertThat(snapshot.toWei(new BigDecimal("35000"))).isEqualTo(BigInteger.TEN.pow(18));
+    }
+
+    @Test
+    void subCentAmountsAreNotRoundedToTheCent() {
+        RateSnapshot snapshot = RateSnapshot.of(new RateQuote("v", new BigDecimal("35000")));
+
+        // 0.004 MAD used to round to 0 cents, and 0.005 to a whole cent
+        assertThat(snapshot.toWei(new BigDecimal("0.004"))).isEqualTo(new BigInteger("114285714286"));
+        assertThat(snapshot.toWei(new BigDecimal("0.005"))).isEqualTo(new BigInteger("142857142857"));
+        assertThat(snapshot.toWei(new BigDecimal("350.005"))).isEqualTo(new BigInteger("10000142857142857"));
+    }
+
+    @Test
+    void keepsLastGoodRateWhenRefreshFails() {
+        AtomicReference<RateQuote> next = new AtomicReference<>(new RateQuote("v1", new BigDecimal("35000")));
+        ExchangeRates rates = new ExchangeRates(() -> {
+            RateQuote quote = next.get();
+            if (quote == null) {
+                throw new IOException("rate source down");
+            }
+            return quote;
+        }, registry);
+        assertThat(rates.current().version()).isEqualTo("v1");
+
+        next.set(null);
+        rates.refresh();
+        assertThat(rates.current().version()).isEqualTo("v1");
+
+        next.set(new RateQuote("v2", new BigDecimal("36000")));
+        rates.refresh();
+        assertThat(rates.current().version()).isEqualTo("v2");
+        assertThat(registry.counter("payments_rate_refresh_total", "result", "error").count()).isEqualTo(1.0);
+        assertThat(registry.get("payments_rate_mad_per_eth").gauge().value()).isEqualTo(36000.0);
+    }
+
+    @Test
+    void noRateLoadedIsUnavailable() {
+        ExchangeRates rates = new ExchangeRates(() -> {
+            throw new IOException("rate source down");
+        }, registry);
+
+        assertThatThrownBy(rates::current)
+                .isInstanceOf(BusinessException.class)
+                .extracting(e -> ((BusinessException) e).getCode())
+                .isEqualTo("RATE_UNAVAILABLE");
+    }
+
+    @Test
+    void fileProviderUsesModificationTimeWhenNoVersionIsGiven(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rates.properties");
+        Files.writeString(file, "mad-per-eth=35500.25\n");
+        FileRateProvider provider = new FileRateProvider(file);
+
+        RateQuote quote = provider.fetch();
+        assertThat(quote.madPerEth()).isEqualByComparingTo("35500.25");
+        assertThat(quote.version()).isEqualTo("file:" + Files.getLastModifiedTime(file).toMillis());
+
+        Files.writeString(file, "mad-per-eth=36000\nversion=2026-10-19T10:00Z\n");
+        assertThat(provider.fetch().version()).isEqualTo("2026-10-19T10:00Z");
+    }
+}
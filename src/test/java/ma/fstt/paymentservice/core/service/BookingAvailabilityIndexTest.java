@@ -0,0 +1,96 @@
+package ma.fstt.paymentservice.core.service;
+
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingAvailabilityIndexTest {
+
+    private static final String PROPERTY_ID = "prop-1";
+
+    private BookingRepository bookingRepository;
+    private BookingAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        index = new BookingAvailabilityIndex(bookingRepository);
+        ReflectionTestUtils.setField(index, "maxStalenessMs", 60_000L);
+    }
+
+    @Test
+    void findsOverlapsWithInclusiveBoundaries() {
+        when(bookingRepository.findByPropertyId(PROPERTY_ID)).thenReturn(new ArrayList<>(List.of(
+                booking(1L, "2026-05-01", "2026-05-05", "CONFIRMED"),
+                booking(2L, "2026-05-10", "2026-05-12", "PENDING_PAYMENT"),
+                booking(3L, "2026-04-01", "2026-04-30", "CONFIRMED"))));
+
+        assertThat(index.findOverlappingBookingIds(PROPERTY_ID, null, date("2026-05-05"), date("2026-05-10")))
+                .containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.findOverlappingBookingIds(PROPERTY_ID, null, date("2026-04-29"), date("2026-04-29")))
+                .containsExactly(3L);
+        assertThat(index.isAvailable(PROPERTY_ID, date("2026-05-06"), date("2026-05-09"))).isTrue();
+        assertThat(index.findOverlappingBookingIds(PROPERTY_ID, 1L, date("2026-05-01"), date("2026-05-03")))
+                .isEmpty();
+    }
+
+    @Test
+    void ignoresInactiveBookingsAndTracksWrites() {
+        when(bookingRepository.findByPropertyId(PROPERTY_ID)).thenReturn(new ArrayList<>(List.of(
+                booking(1L, "2026-05-01", "2026-05-05", "CANCELLED"),
+                booking(2L, "2026-05-01", "2026-05-05", "PENDING"))));
+
+        assertThat(index.findOverlappingBookingIds(PROPERTY_ID, null, date("2026-05-02"), date("2026-05-03")))
+                .containsExactly(2L);
+
+        index.upsert(booking(2L, "2026-05-01", "2026-05-05", "COMPLETED"));
+        assertThat(index.isAvailable(PROPERTY_ID, date("2026-05-02"), date("2026-05-03"))).isTrue();
+
+        index.upsert(booking(4L, "2026-05-03", "2026-05-04", "CONFIRMED"));
+        assertThat(index.findOverlappingBookingIds(PROPERTY_ID, null, date("2026-05-02"), date("2026-05-03")))
+                .containsExactly(4L);
+
+        index.remove(PROPERTY_ID, 4L);
+        assertThat(index.isAvailable(PROPERTY_ID, date("2026-05-02"), date("2026-05-03"))).isTrue();
+        verify(bookingRepository, times(1)).findByPropertyId(PROPERTY_ID);
+    }
+
+    @Test
+    void reloadsAfterInvalidation() {
+        when(bookingRepository.findByPropertyId(PROPERTY_ID)).thenReturn(new ArrayList<>());
+        assertThat(index.isAvailable(PROPERTY_ID, date("2026-05-01"), date("2026-05-02"))).isTrue();
+
+        when(bookingRepository.findByPropertyId(PROPERTY_ID)).thenReturn(new ArrayList<>(List.of(
+                booking(7L, "2026-05-01", "2026-05-02", "PENDING_PAYMENT"))));
+        index.invalidate(PROPERTY_ID);
+
+        assertThat(index.isAvailable(PROPERTY_ID, date("2026-05-01"), date("2026-05-02"))).isFalse();
+        verify(bookingRepository, times(2)).findByPropertyId(PROPERTY_ID);
+    }
+
+    private static Booking booking(Long id, String checkIn, String checkOut, String status) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setPropertyId(PROPERTY_ID);
+        booking.setCheckInDate(date(checkIn));
+        booking.setCheckOutDate(date(checkOut));
+        booking.setStatus(status);
+        return booking;
+    }
+
+    private static LocalDate date(String value) {
+        return LocalDate.parse(value);
+    }
+}
@@ -0,0 +1,93 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.config.ReplicaLagGuard;
+import ma.fstt.paymentservice.core.service.BookingDetailsLoader.BookingDetailsSources;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.domain.entity.UserAccount;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.PropertySnapshot;
+import ma.fstt.paymentservice.domain.repository.UserAccountRepository;
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingDetailsLoaderTest {
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final UserAccountRepository userAccountRepository = mock(UserAccountRepository.class);
+    private final PropertyDatabaseService propertyDatabaseService = mock(PropertyDatabaseService.class);
+    private final ReplicaLagGuard replicaLagGuard = new ReplicaLagGuard(new SimpleMeterRegistry(), 5000, 1000);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BookingDetailsLoader loader = new BookingDetailsLoader(bookingRepository, userAccountRepository,
+            propertyDatabaseService, replicaLagGuard, new NegativeLookupCache(registry, 2000, 100, 100), registry, 4);
+
+    @AfterEach
+    void tearDown() {
+        loader.stop();
+        MDC.clear();
+        replicaLagGuard.release();
+    }
+
+    @Test
+    void loadsGuestAlongsidePropertyAndOwnerChain() {
+        Booking booking = new Booking();
+        booking.setId(7L);
+        booking.setPropertyId("prop-1");
+        booking.setUserId(20L);
+        when(bookingRepository.findById(7L)).thenReturn(Optional.of(booking));
+        when(propertyDatabaseService.getSnapshot("prop-1"))
+                .thenReturn(new PropertySnapshot("prop-1", "10", 150.0, 0.0, "Villa", 0));
+
+        // Owner and guest lookups each wait for the other: this only completes if they overlap
+        CyclicBarrier bothInFlight = new CyclicBarrier(2);
+        UserAccount owner = user(10L);
+        UserAccount guest = user(20L);
+        when(userAccountRepository.findById(10L)).thenAnswer(invocation -> {
+            bothInFlight.await(5, TimeUnit.SECONDS);
+            return Optional.of(owner);
+        });
+        when(userAccountRepository.findById(20L)).thenAnswer(invocation -> {
+            bothInFlight.await(5, TimeUnit.SECONDS);
+            assertThat(MDC.get("bookingId")).isEqualTo("7");
+            assertThat(replicaLagGuard.isPinned()).isTrue();
+            return Optional.of(guest);
+        });
+
+        MDC.put("bookingId", "7");
+        replicaLagGuard.pin();
+        BookingDetailsSources sources = loader.load(7L);
+
+        assertThat(sources.booking()).isSameAs(booking);
+        assertThat(sources.owner()).isSameAs(owner);
+        assertThat(sources.guest()).isSameAs(guest);
+        assertThat(MDC.get("bookingId")).isEqualTo("7");
+        assertThat(replicaLagGuard.isPinned()).isTrue();
+        assertThat(registry.get("payments_booking_details_critical_path_seconds").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void missingBookingIsNotFound() {
+        when(bookingRepository.findById(8L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> loader.load(8L))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Booking with ID 8");
+    }
+
+    private static UserAccount user(Long id) {
+        UserAccount user = new UserAccount();
+        user.setId(id);
+        return user;
+    }
+}
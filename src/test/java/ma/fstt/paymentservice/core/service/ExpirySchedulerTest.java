@@ -0,0 +1,167 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.core.service.ExpiryScheduler.Kind;
+import ma.fstt.paymentservice.domain.entity.enums.TransactionStatusEnum;
+import ma.fstt.paymentservice.domain.repository.BookingRepository;
+import ma.fstt.paymentservice.domain.repository.ExpiryDeadline;
+import ma.fstt.paymentservice.domain.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpirySchedulerTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final Duration TTL = Duration.ofSeconds(600);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final ExpiryApplier applier = mock(ExpiryApplier.class);
+    private final AtomicLong now = new AtomicLong(START);
+    private SimpleMeterRegistry registry;
+    private ExpiryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        scheduler = new ExpiryScheduler(bookingRepository, transactionRepository, applier, registry, true,
+                1_000, 64, 4, 600, 30_000, 2, 60_000, now::get);
+    }
+
+    @Test
+    void loadsOpenDeadlinesAndAppliesThemInBatchesWhenDue() {
+        when(bookingRepository.findNegotiationDeadlines()).thenReturn(List.of(
+                new ExpiryDeadline(1L, Instant.ofEpochMilli(START + 5_000))));
+        when(transactionRepository.findCreationTimesByStatus(TransactionStatusEnum.PENDING)).thenReturn(List.of(
+                new ExpiryDeadline(10L, Instant.ofEpochMilli(START - 600_000)),
+                new ExpiryDeadline(11L, Instant.ofEpochMilli(START - 599_000)),
+                new ExpiryDeadline(12L, Instant.ofEpochMilli(START - 598_000))));
+        when(applier.expireIntents(anyCollection(), any(), any()))
+                .thenAnswer(call -> new ExpiryApplier.Result(((List<?>) call.getArgument(0)).size(), Map.of()));
+        when(applier.expireNegotiations(anyCollection(), any())).thenReturn(new ExpiryApplier.Result(1, Map.of()));
+        scheduler.load();
+
+        now.addAndGet(3_000);
+        scheduler.tick();
+        // Keys due on the same tick come out in no particular order
+        verify(applier).expireIntents(argThat(ids -> Set.copyOf(ids).equals(Set.of(10L, 11L))),
+                eq(Instant.ofEpochMilli(now.get())), eq(TTL));
+        verify(applier).expireIntents(List.of(12L), Instant.ofEpochMilli(now.get()), TTL);
+        verify(applier, never()).expireNegotiations(anyCollection(), any());
+
+        now.addAndGet(2_000);
+        scheduler.tick();
+        verify(applier).expireNegotiations(List.of(1L), Instant.ofEpochMilli(now.get()));
+        assertThat(scheduler.scheduledCount()).isZero();
+        assertThat(registry.counter("payments_expiries_total", "kind", "intent", "result", "expired").count())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    void picksUpNegotiationsOpenedElsewhereAfterStartupOnTheNextReseed() {
+        scheduler.load();
+        // Opened by booking-service after startup, with no message to this service
+        when(bookingRepository.findNegotiationDeadlinesBefore(Instant.ofEpochMilli(START + 120_000)))
+                .thenReturn(List.of(new ExpiryDeadline(5L, Instant.ofEpochMilli(START + 90_000))));
+        when(applier.expireNegotiations(anyCollection(), any())).thenReturn(new ExpiryApplier.Result(1, Map.of()));
+
+        now.addAndGet(59_000);
+        scheduler.tick();
+        assertThat(scheduler.isScheduled(Kind.NEGOTIATION, 5L)).isFalse();
+
+        now.addAndGet(1_000);
+        scheduler.tick();
+        assertThat(scheduler.isScheduled(Kind.NEGOTIATION, 5L)).isTrue();
+
+        now.set(START + 90_000);
+        scheduler.tick();
+        verify(applier).expireNegotiations(List.of(5L), Instant.ofEpochMilli(START + 90_000));
+        assertThat(registry.counter("payments_expiries_total", "kind", "negotiation", "result", "reseeded").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void reschedulesExtendedNegotiationsAndRetriesFailedBatches() {
+        scheduler.scheduleNegotiation(1L, Instant.ofEpochMilli(START + 1_000));
+        scheduler.scheduleIntent(10L);
+        Instant extendedTo = Instant.ofEpochMilli(START + 60_000);
+        when(applier.expireNegotiations(anyCollection(), any()))
+                .thenReturn(new ExpiryApplier.Result(0, Map.of(1L, extendedTo)));
+
+        now.addAndGet(1_000);
+        scheduler.tick();
+        assertThat(scheduler.isScheduled(Kind.NEGOTIATION, 1L)).isTrue();
+
+        when(applier.expireIntents(anyCollection(), any(), any())).thenThrow(new IllegalStateException("db down"));
+        now.addAndGet(600_000);
+        scheduler.tick();
+        assertThat(scheduler.isScheduled(Kind.INTENT, 10L)).isTrue();
+        assertThat(registry.counter("payments_expiries_total", "kind", "intent", "result", "retried").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void settledIntentsAreCancelled() {
+        scheduler.scheduleIntent(10L);
+        scheduler.cancelIntent(10L);
+
+        now.addAndGet(600_000);
+        scheduler.tick();
+        verify(applier, never()).expireIntents(anyCollection(), any(), any());
+    }
+
+    @Test
+    void intentsCreatedMidTickFireOnlyOnceTheirTtlHasElapsed() {
+        Instant createdAt = Instant.ofEpochMilli(START + 500);
+        when(transactionRepository.findCreationTimesByStatus(TransactionStatusEnum.PENDING))
+                .thenReturn(List.of(new ExpiryDeadline(20L, createdAt)));
+        when(applier.expireIntents(anyCollection(), any(), any())).thenReturn(new ExpiryApplier.Result(1, Map.of()));
+        scheduler.load();
+
+        now.set(START + 600_100);
+        scheduler.tick();
+        verify(applier, never()).expireIntents(anyCollection(), any(), any());
+
+        now.set(START + 601_000);
+        scheduler.tick();
+        verify(applier).expireIntents(List.of(20L), Instant.ofEpochMilli(START + 601_000), TTL);
+        assertThat(Instant.ofEpochMilli(START + 601_000)).isAfterOrEqualTo(createdAt.plus(TTL));
+    }
+
+    @Test
+    void intentsStillPendingButNotDueAreRescheduled() {
+        scheduler.scheduleIntent(10L);
+        Instant dueAt = Instant.ofEpochMilli(START + 605_000);
+        when(applier.expireIntents(anyCollection(), any(), any()))
+                .thenReturn(new ExpiryApplier.Result(0, Map.of(10L, dueAt)));
+
+        now.addAndGet(600_000);
+        scheduler.tick();
+        assertThat(scheduler.isScheduled(Kind.INTENT, 10L)).isTrue();
+        assertThat(registry.counter("payments_expiries_total", "kind", "intent", "result", "rescheduled").count())
+                .isEqualTo(1.0);
+
+        when(applier.expireIntents(anyCollection(), any(), any())).thenReturn(new ExpiryApplier.Result(1, Map.of()));
+        now.set(dueAt.toEpochMilli());
+        scheduler.tick();
+        verify(applier).expireIntents(List.of(10L), dueAt, TTL);
+        assertThat(scheduler.isScheduled(Kind.INTENT, 10L)).isFalse();
+    }
+}
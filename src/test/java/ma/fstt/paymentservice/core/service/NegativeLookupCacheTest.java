@@ -0,0 +1,61 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NegativeLookupCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final NegativeLookupCache cache = new NegativeLookupCache(registry, 60_000, 100, 1000);
+
+    @Test
+    void repeatedMissesAreAnsweredLocallyUntilInvalidated() {
+        AtomicInteger queries = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.find(NegativeLookupCache.BOOKING, 7L, () -> {
+                queries.incrementAndGet();
+                return Optional.empty();
+            })).isEmpty();
+        }
+        assertThat(queries.get()).isEqualTo(1);
+
+        cache.invalidate(NegativeLookupCache.BOOKING, 7L);
+        assertThat(cache.find(NegativeLookupCache.BOOKING, 7L, () -> {
+            queries.incrementAndGet();
+            return Optional.of("booking-7");
+        })).contains("booking-7");
+        assertThat(queries.get()).isEqualTo(2);
+        assertThat(registry.counter("payments_negative_cache_requests_total",
+                "scope", NegativeLookupCache.BOOKING, "result", "negative_hit").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void bookingSeenOnChainClearsCachedMissAndIsKnownAfterwards() {
+        cache.recordMissing(NegativeLookupCache.ONCHAIN_BOOKING, 42L);
+        assertThat(cache.isKnownOnChain(42L)).isFalse();
+
+        cache.markOnChain(42L);
+
+        assertThat(cache.isKnownOnChain(42L)).isTrue();
+        assertThat(cache.isKnownMissing(NegativeLookupCache.ONCHAIN_BOOKING, 42L)).isFalse();
+        assertThat(cache.isKnownOnChain(43L)).isFalse();
+    }
+
+    @Test
+    void onlyBookingsActuallySeenAreKnownOnChain() {
+        NegativeLookupCache small = new NegativeLookupCache(registry, 60_000, 100, 1000);
+        for (long id = 0; id < 1000; id += 2) {
+            small.markOnChain(id);
+        }
+
+        for (long id = 1; id < 10_000; id += 2) {
+            assertThat(small.isKnownOnChain(id)).as("booking %d", id).isFalse();
+        }
+    }
+}
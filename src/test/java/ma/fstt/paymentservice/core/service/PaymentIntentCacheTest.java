@@ -0,0 +1,85 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.core.service.PaymentIntentCache.PrecomputedIntent;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentIntentCacheTest {
+
+    private static final String OWNER_WALLET = "0x1111111111111111111111111111111111111111";
+    private static final String GUEST_WALLET = "0x2222222222222222222222222222222222222222";
+
+    private SimpleMeterRegistry registry;
+    private PaymentIntentCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new PaymentIntentCache(new PaymentsMetrics(registry), 100, 60);
+        cache.put(new PrecomputedIntent(1L, "prop-1", 10L, OWNER_WALLET, 20L, GUEST_WALLET,
+                new BigDecimal("700.00"), new BigDecimal("300"), "0xcontract", "0xdata", BigInteger.TEN, "v1"));
+    }
+
+    @Test
+    void servesEntryOnlyWhileBookingStillMatches() {
+        assertThat(get(booking(700.0, 20L), "v1")).isNotNull();
+        assertThat(get(booking(750.0, 20L), "v1")).isNull();
+        assertThat(get(booking(700.0, 21L), "v1")).isNull();
+
+        assertThat(registry.counter("payments_intent_cache_requests_total", "result", "hit").count()).isEqualTo(1.0);
+        assertThat(registry.counter("payments_intent_cache_requests_total", "result", "miss").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void entryPricedWithAnotherRateVersionIsNotServed() {
+        assertThat(get(booking(700.0, 20L), "v2")).isNull();
+        assertThat(get(booking(700.0, 20L), "v1")).isNotNull();
+    }
+
+    @Test
+    void entryIsNotServedOnceDepositOwnerOrWalletsChanged() {
+        Booking booking = booking(700.0, 20L);
+        BigDecimal deposit = new BigDecimal("300.0");
+
+        assertThat(cache.getIfValid(booking, 10L, OWNER_WALLET.toUpperCase(), GUEST_WALLET, deposit, "v1")).isNotNull();
+        assertThat(cache.getIfValid(booking, 10L, OWNER_WALLET, GUEST_WALLET, new BigDecimal("250"), "v1")).isNull();
+        assertThat(cache.getIfValid(booking, 11L, OWNER_WALLET, GUEST_WALLET, deposit, "v1")).isNull();
+        assertThat(cache.getIfValid(booking, 10L, GUEST_WALLET, GUEST_WALLET, deposit, "v1")).isNull();
+        assertThat(cache.getIfValid(booking, 10L, OWNER_WALLET, OWNER_WALLET, deposit, "v1")).isNull();
+    }
+
+    @Test
+    void invalidatesByPropertyAndUser() {
+        cache.invalidateProperty("prop-2");
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.invalidateProperty("prop-1");
+        assertThat(get(booking(700.0, 20L), "v1")).isNull();
+
+        cache.put(new PrecomputedIntent(1L, "prop-1", 10L, OWNER_WALLET, 20L, GUEST_WALLET, new BigDecimal("700"),
+                BigDecimal.ZERO, "0xcontract", "0xdata", BigInteger.ONE, "v1"));
+        cache.invalidateUser(10L);
+        assertThat(cache.size()).isZero();
+    }
+
+    private PrecomputedIntent get(Booking booking, String rateVersion) {
+        return cache.getIfValid(booking, 10L, OWNER_WALLET, GUEST_WALLET, new BigDecimal("300"), rateVersion);
+    }
+
+    private static Booking booking(double totalPrice, Long userId) {
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setPropertyId("prop-1");
+        booking.setUserId(userId);
+        booking.setTotalPrice(totalPrice);
+        return booking;
+    }
+}
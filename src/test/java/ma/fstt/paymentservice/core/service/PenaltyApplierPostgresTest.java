@@ -0,0 +1,161 @@
+package ma.fstt.paymentservice.core.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs {@link PenaltyApplier#APPLY_PENALTIES_SQL} on PostgreSQL over the migrated schema; H2
+ * supports neither {@code unnest} with several arrays nor {@code UPDATE ... FROM ... RETURNING}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PenaltyApplierPostgresTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final LocalDateTime NOW_LOCAL = LocalDateTime.ofInstant(Instant.ofEpochMilli(NOW), ZoneId.systemDefault());
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbc;
+    private static PenaltyApplier applier;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure()
+                .dataSource(dataSource)
+                .table("payments_schema_history")
+                .locations("classpath:db/migration", "classpath:ma/fstt/paymentservice/domain/migration")
+                .load()
+                .migrate();
+        jdbc = new JdbcTemplate(dataSource);
+        applier = new PenaltyApplier(jdbc, mock(EntityCacheEvictor.class), 500, () -> NOW);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // points, newScore, suspended, suspension days (empty: none or indefinite)
+            "10, 90, false,",
+            "11, 89, true, 7",
+            "15, 85, true, 7",
+            "16, 84, true, 30",
+            "20, 80, true, 30",
+            "21, 79, true, 60",
+            "25, 75, true, 60",
+            "26, 74, true,",
+            "150, 0, true,"
+    })
+    void appliesTheTierOfTheNewScore(int points, int newScore, boolean suspended, Integer days) {
+        long userId = insertUser(100, false, null);
+
+        PenaltyApplier.Result result = applier.apply(userId, points);
+
+        assertThat(result.previousScore()).isEqualTo(100);
+        assertThat(result.newScore()).isEqualTo(newScore);
+        assertThat(result.pointsDeducted()).isEqualTo(100 - newScore);
+        assertThat(result.suspended()).isEqualTo(suspended);
+        assertThat(result.suspensionUntil()).isEqualTo(days != null ? NOW_LOCAL.plusDays(days) : null);
+        assertThat(jdbc.queryForObject("SELECT score FROM users WHERE id = ?", Integer.class, userId))
+                .isEqualTo(newScore);
+        if (suspended) {
+            assertThat(jdbc.queryForObject("SELECT suspension_reason FROM users WHERE id = ?", String.class, userId))
+                    .endsWith((100 - newScore) + " penalty points deducted");
+        }
+    }
+
+    @Test
+    void liftsOnlyAnElapsedSuspensionAboveTheTiers() {
+        long elapsed = insertUser(100, true, NOW_LOCAL.minusDays(1));
+        long running = insertUser(100, true, NOW_LOCAL.plusDays(1));
+
+        List<PenaltyApplier.Result> results = applier.applyAll(List.of(
+                new PenaltyApplier.Penalty(elapsed, 5), new PenaltyApplier.Penalty(running, 5)));
+
+        assertThat(results.get(0).suspended()).isFalse();
+        assertThat(results.get(0).suspensionUntil()).isNull();
+        assertThat(results.get(1).suspended()).isTrue();
+        assertThat(results.get(1).suspensionUntil()).isEqualTo(NOW_LOCAL.plusDays(1));
+    }
+
+    @Test
+    void leavesUnknownUsersOutOfTheResult() {
+        long userId = insertUser(100, false, null);
+
+        List<PenaltyApplier.Result> results = applier.applyAll(List.of(
+                new PenaltyApplier.Penalty(userId, 1), new PenaltyApplier.Penalty(Long.MAX_VALUE, 1)));
+
+        assertThat(results).extracting(PenaltyApplier.Result::userId).containsExactly(userId);
+    }
+
+    @Test
+    void concurrentPenaltiesAreAllCountedWithoutDeadlocking() throws Exception {
+        long first = insertUser(100, false, null);
+        long second = insertUser(100, false, null);
+        int threads = 8;
+        int rounds = 5;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> deducted = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                // Half of the batches name the users in the opposite order
+                List<PenaltyApplier.Penalty> batch = t % 2 == 0
+                        ? List.of(new PenaltyApplier.Penalty(first, 1), new PenaltyApplier.Penalty(second, 1))
+                        : List.of(new PenaltyApplier.Penalty(second, 1), new PenaltyApplier.Penalty(first, 1));
+                Callable<Integer> worker = () -> {
+                    int sum = 0;
+                    for (int r = 0; r < rounds; r++) {
+                        for (PenaltyApplier.Result result : applier.applyAll(batch)) {
+                            sum += result.pointsDeducted();
+                        }
+                    }
+                    return sum;
+                };
+                deducted.add(executor.submit(worker));
+            }
+            int total = 0;
+            for (Future<Integer> future : deducted) {
+                total += future.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(total).isEqualTo(2 * threads * rounds);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbc.queryForObject("SELECT score FROM users WHERE id = ?", Integer.class, first))
+                .isEqualTo(100 - threads * rounds);
+        assertThat(jdbc.queryForObject("SELECT score FROM users WHERE id = ?", Integer.class, second))
+                .isEqualTo(100 - threads * rounds);
+    }
+
+    private static long insertUser(int score, boolean suspended, LocalDateTime suspensionUntil) {
+        return jdbc.queryForObject("INSERT INTO users (first_name, last_name, email, password, is_enabled, score,"
+                        + " is_suspended, suspension_until) VALUES ('Test', 'User', gen_random_uuid() || '@example.com',"
+                        + " 'x', TRUE, ?, ?, ?) RETURNING id", Long.class,
+                score, suspended, suspensionUntil != null ? Timestamp.valueOf(suspensionUntil) : null);
+    }
+}
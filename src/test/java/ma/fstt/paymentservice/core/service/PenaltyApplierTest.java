@@ -0,0 +1,125 @@
+package ma.fstt.paymentservice.core.service;
+
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PenaltyApplierTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EntityCacheEvictor entityCacheEvictor = mock(EntityCacheEvictor.class);
+    private final PenaltyApplier applier = new PenaltyApplier(jdbcTemplate, entityCacheEvictor, 3, () -> NOW);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bindsPenaltiesAsArraysInIdOrderAndEvictsUpdatedUsers() throws Exception {
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        ArgumentCaptor<RowMapper<PenaltyApplier.Result>> mapper = ArgumentCaptor.forClass(RowMapper.class);
+        when(jdbcTemplate.query(creator.capture(), mapper.capture())).thenAnswer(invocation -> new ArrayList<>(List.of(
+                new PenaltyApplier.Result(7L, 95, 80, 15, true, null),
+                new PenaltyApplier.Result(3L, 100, 90, 10, false, null))));
+
+        List<PenaltyApplier.Result> results = applier.applyAll(List.of(
+                new PenaltyApplier.Penalty(7L, 5),
+                new PenaltyApplier.Penalty(3L, 10),
+                new PenaltyApplier.Penalty(5L, 20),
+                new PenaltyApplier.Penalty(7L, 10)));
+
+        assertThat(results).extracting(PenaltyApplier.Result::userId).containsExactly(3L, 7L);
+        verify(entityCacheEvictor).evictUser(3L);
+        verify(entityCacheEvictor).evictUser(7L);
+        verify(entityCacheEvictor, never()).evictUser(5L);
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(PenaltyApplier.APPLY_PENALTIES_SQL)).thenReturn(statement);
+        when(connection.createArrayOf(any(), any())).thenReturn(mock(Array.class));
+        creator.getValue().createPreparedStatement(connection);
+
+        verify(connection).createArrayOf(eq("bigint"), eq(new Object[] {3L, 5L, 7L}));
+        verify(connection).createArrayOf(eq("integer"), eq(new Object[] {10, 20, 15}));
+        verify(statement).setTimestamp(eq(1), any(Timestamp.class));
+    }
+
+    @Test
+    void mapsReturnedRowsIncludingScoreFloor() throws Exception {
+        ArgumentCaptor<RowMapper<PenaltyApplier.Result>> mapper = captureMapper();
+        applier.apply(4L, 30);
+
+        LocalDateTime until = LocalDateTime.of(2024, 1, 1, 12, 0);
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("id")).thenReturn(4L);
+        when(row.getInt("previous_score")).thenReturn(20);
+        when(row.getInt("score")).thenReturn(0);
+        when(row.getBoolean("is_suspended")).thenReturn(true);
+        when(row.getTimestamp("suspension_until")).thenReturn(Timestamp.valueOf(until));
+
+        PenaltyApplier.Result result = mapper.getValue().mapRow(row, 0);
+
+        assertThat(result).isEqualTo(new PenaltyApplier.Result(4L, 20, 0, 20, true, until));
+    }
+
+    @Test
+    void returnsNullForUnknownUser() {
+        captureMapper();
+
+        assertThat(applier.apply(9L, 5)).isNull();
+        verifyNoInteractions(entityCacheEvictor);
+    }
+
+    @Test
+    void rejectsInvalidPointsAndOversizedBatchesWithoutQuerying() {
+        assertThatThrownBy(() -> applier.apply(1L, 0))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Invalid penalty points");
+        assertThatThrownBy(() -> applier.applyAll(List.of(penalty(1L, 1), penalty(2L, 1), penalty(3L, 1),
+                penalty(4L, 1))))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("At most 3 users");
+        assertThatThrownBy(() -> applier.applyAll(Arrays.asList(penalty(1L, 1), null)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("userId is required");
+        assertThatThrownBy(() -> applier.applyAll(List.of(penalty(1L, Integer.MAX_VALUE), penalty(1L, 1))))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo("INVALID_PENALTY_POINTS");
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static PenaltyApplier.Penalty penalty(Long userId, Integer points) {
+        return new PenaltyApplier.Penalty(userId, points);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<RowMapper<PenaltyApplier.Result>> captureMapper() {
+        ArgumentCaptor<RowMapper<PenaltyApplier.Result>> mapper = ArgumentCaptor.forClass(RowMapper.class);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), mapper.capture()))
+                .thenAnswer(invocation -> new ArrayList<>());
+        return mapper;
+    }
+}
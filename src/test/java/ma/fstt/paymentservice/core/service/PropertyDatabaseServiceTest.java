@@ -0,0 +1,88 @@
+package ma.fstt.paymentservice.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.domain.repository.PropertyRepository;
+import ma.fstt.paymentservice.domain.repository.PropertySnapshot;
+import ma.fstt.paymentservice.exception.BusinessException;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PropertyDatabaseServiceTest {
+
+    private final PropertyRepository repository = mock(PropertyRepository.class);
+    private SimpleMeterRegistry registry;
+    private PropertyDatabaseService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        PaymentsMetrics metrics = new PaymentsMetrics(registry);
+        service = new PropertyDatabaseService(repository, new PaymentIntentCache(metrics, 100, 60),
+                mock(EntityCacheEvictor.class), new NegativeLookupCache(registry, 2000, 100, 100), metrics, 100, 60);
+    }
+
+    @Test
+    void cachesSnapshotsUntilInvalidated() {
+        PropertySnapshot snapshot = new PropertySnapshot("prop-1", "42", 150.0, null, "Villa", 10);
+        when(repository.findSnapshotById("prop-1")).thenReturn(Optional.of(snapshot));
+
+        assertThat(service.getSnapshot("prop-1")).isSameAs(snapshot);
+        assertThat(service.getSnapshot("prop-1")).isSameAs(snapshot);
+        verify(repository, times(1)).findSnapshotById("prop-1");
+
+        service.invalidate("prop-1");
+        service.getSnapshot("prop-1");
+        verify(repository, times(2)).findSnapshotById("prop-1");
+
+        assertThat(registry.counter("payments_property_snapshot_cache_requests_total", "result", "hit").count()).isEqualTo(1.0);
+        assertThat(registry.counter("payments_property_snapshot_cache_requests_total", "result", "miss").count()).isEqualTo(2.0);
+        assertThat(snapshot.ownerId()).isEqualTo(42L);
+        assertThat(snapshot.depositOrZero()).isZero();
+    }
+
+    @Test
+    void missingPropertiesAreAnsweredLocallyUntilInvalidated() {
+        when(repository.findSnapshotById("ghost")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.getSnapshot("ghost"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("ghost");
+        assertThatThrownBy(() -> service.getSnapshot("ghost")).isInstanceOf(BusinessException.class);
+        verify(repository, times(1)).findSnapshotById("ghost");
+
+        service.invalidate("ghost");
+        assertThatThrownBy(() -> service.getSnapshot("ghost")).isInstanceOf(BusinessException.class);
+        verify(repository, times(2)).findSnapshotById("ghost");
+    }
+
+    @Test
+    void bulkLookupLoadsUncachedPropertiesInOneQuery() {
+        PropertySnapshot villa = new PropertySnapshot("prop-1", "42", 150.0, 300.0, "Villa", 10);
+        PropertySnapshot riad = new PropertySnapshot("prop-2", "43", 90.0, null, "Riad", 5);
+        when(repository.findSnapshotById("prop-1")).thenReturn(Optional.of(villa));
+        when(repository.findSnapshotsByIdIn(Set.of("prop-2", "ghost"))).thenReturn(List.of(riad));
+        service.getSnapshot("prop-1");
+
+        Map<String, PropertySnapshot> snapshots = service.getSnapshots(List.of("prop-1", "prop-2", "ghost"));
+
+        assertThat(snapshots).containsOnly(Map.entry("prop-1", villa), Map.entry("prop-2", riad));
+        assertThat(service.getSnapshot("prop-2")).isSameAs(riad);
+        assertThatThrownBy(() -> service.getSnapshot("ghost")).isInstanceOf(BusinessException.class);
+        verify(repository, times(1)).findSnapshotsByIdIn(Set.of("prop-2", "ghost"));
+        verify(repository, never()).findSnapshotById("ghost");
+    }
+}
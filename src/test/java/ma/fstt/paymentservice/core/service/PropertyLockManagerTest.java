@@ -0,0 +1,142 @@
+package ma.fstt.paymentservice.core.service;
+
+import ma.fstt.paymentservice.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PropertyLockManagerTest {
+
+    @Test
+    void serializesWorkOnTheSameProperty() throws Exception {
+        PropertyLockManager lockManager = new PropertyLockManager(null, null, "local", 5_000);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 64; i++) {
+                executor.submit(() -> lockManager.withPropertyLock("prop-1", () -> {
+                    maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    return inside.decrementAndGet();
+                }));
+            }
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(maxInside.get()).isEqualTo(1);
+    }
+
+    @Test
+    void differentPropertiesDoNotBlockEachOther() throws Exception {
+        PropertyLockManager lockManager = new PropertyLockManager(null, null, "local", 5_000);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> holder = executor.submit(() -> lockManager.withPropertyLock("prop-a", () -> {
+                holding.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }));
+            assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(lockManager.withPropertyLock("prop-b", () -> "done")).isEqualTo("done");
+
+            release.countDown();
+            assertThat(holder.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void timesOutWhenPropertyIsHeld() throws Exception {
+        PropertyLockManager lockManager = new PropertyLockManager(null, null, "local", 50);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> lockManager.withPropertyLock("prop-1", () -> {
+                holding.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }));
+            assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> lockManager.withPropertyLock("prop-1", () -> "never"))
+                    .isInstanceOf(BusinessException.class)
+                    .hasMessageContaining("prop-1");
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void advisoryModeTakesTheLockInsideTheCallbacksTransaction() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus transaction = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        PropertyLockManager lockManager = new PropertyLockManager(jdbcTemplate, transactionManager, "advisory", 250);
+
+        assertThat(lockManager.withPropertyLock("prop-1", () -> {
+            verify(transactionManager, never()).commit(any());
+            return "done";
+        })).isEqualTo("done");
+
+        InOrder order = inOrder(transactionManager, jdbcTemplate);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(jdbcTemplate).execute("SET LOCAL lock_timeout = 250");
+        order.verify(jdbcTemplate).queryForList("SELECT pg_advisory_xact_lock(?)",
+                PropertyLockManager.advisoryKey("prop-1"));
+        order.verify(transactionManager).commit(transaction);
+    }
+
+    @Test
+    void advisoryLockTimeoutRollsBackWithoutRunningTheCallback() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus transaction = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(jdbcTemplate.queryForList(anyString(), anyLong()))
+                .thenThrow(new CannotAcquireLockException("canceling statement due to lock timeout"));
+        PropertyLockManager lockManager = new PropertyLockManager(jdbcTemplate, transactionManager, "advisory", 250);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThatThrownBy(() -> lockManager.withPropertyLock("prop-1", runs::incrementAndGet))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("prop-1");
+        assertThat(runs.get()).isZero();
+        verify(transactionManager).rollback(transaction);
+    }
+}
@@ -0,0 +1,159 @@
+package ma.fstt.paymentservice.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.paymentservice.core.service.PropertyServiceClient.PropertyDetails;
+import ma.fstt.paymentservice.exception.BusinessException;
+import ma.fstt.paymentservice.metrics.PaymentsMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PropertyServiceClientTest {
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final Map<String, String> titles = new ConcurrentHashMap<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private PropertyServiceClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/v1/properties/", exchange -> {
+            String id = exchange.getRequestURI().getPath().substring("/api/v1/properties/".length());
+            calls.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String title = titles.get(id);
+            if (title == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("{\"id\":\"" + id + "\",\"userId\":\"42\",\"title\":\"" + title + "\","
+                    + "\"dailyPrice\":150.5,\"depositAmount\":300,\"maxNegotiationPercent\":10,"
+                    + "\"address\":{\"city\":\"Tangier\"}}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        client = new PropertyServiceClient(HttpClient.newHttpClient(), new ObjectMapper(),
+                new PaymentsMetrics(new SimpleMeterRegistry()),
+                "http://127.0.0.1:" + server.getAddress().getPort(), 5000, 1000, 60_000, 100, now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() throws Exception {
+        titles.put("prop-1", "Villa");
+        release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        List<Future<PropertyDetails>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(callers.submit(() -> client.getPropertyById("prop-1")));
+        }
+        await().atMost(5, TimeUnit.SECONDS).until(() -> calls.containsKey("prop-1"));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<PropertyDetails> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS))
+                    .isEqualTo(new PropertyDetails("prop-1", "42", "Villa", 150.5, 300.0, 10));
+        }
+        callers.shutdown();
+        assertThat(calls.get("prop-1").get()).isEqualTo(1);
+    }
+
+    @Test
+    void servesStaleEntryWhileRefreshing() {
+        titles.put("prop-1", "Villa");
+        assertThat(client.getPropertyById("prop-1").title()).isEqualTo("Villa");
+
+        titles.put("prop-1", "Riad");
+        now.addAndGet(500);
+        assertThat(client.getPropertyById("prop-1").title()).isEqualTo("Villa");
+        assertThat(calls.get("prop-1").get()).isEqualTo(1);
+
+        now.addAndGet(1000);
+        assertThat(client.getPropertyById("prop-1").title()).isEqualTo("Villa");
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> client.getPropertyById("prop-1").title().equals("Riad"));
+        assertThat(calls.get("prop-1").get()).isEqualTo(2);
+    }
+
+    @Test
+    void bulkLookupFetchesOnlyMissingPropertiesAndSkipsUnknownOnes() {
+        titles.put("prop-1", "Villa");
+        titles.put("prop-2", "Riad");
+        client.getPropertyById("prop-1");
+
+        Map<String, PropertyDetails> properties = client.getPropertiesByIds(List.of("prop-1", "prop-2", "gone", "prop-2"));
+
+        assertThat(properties).containsOnlyKeys("prop-1", "prop-2");
+        assertThat(properties.get("prop-2").title()).isEqualTo("Riad");
+        assertThat(calls.get("prop-1").get()).isEqualTo(1);
+        assertThat(calls.get("prop-2").get()).isEqualTo(1);
+    }
+
+    @Test
+    void requestThatCannotBeBuiltFailsEveryCallerInsteadOfHanging() {
+        PropertyServiceClient broken = new PropertyServiceClient(HttpClient.newHttpClient(), new ObjectMapper(),
+                new PaymentsMetrics(new SimpleMeterRegistry()), "http://bad host", 5000, 1000, 60_000, 100, now::get);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 2; i++) {
+                assertThatThrownBy(() -> broken.getPropertyById("prop-1"))
+                        .isInstanceOf(BusinessException.class)
+                        .extracting(e -> ((BusinessException) e).getCode())
+                        .isEqualTo("PROPERTY_SERVICE_UNAVAILABLE");
+            }
+        });
+    }
+
+    @Test
+    void unknownPropertyIsNotFound() {
+        assertThatThrownBy(() -> client.getPropertyById("gone"))
+                .isInstanceOf(BusinessException.class)
+                .extracting(e -> ((BusinessException) e).getCode())
+                .isEqualTo("PROPERTY_NOT_FOUND");
+    }
+}
@@ -0,0 +1,81 @@
+package ma.fstt.paymentservice.core.service;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.fstt.paymentservice.config.RequestLookupMemoFilter;
+import ma.fstt.paymentservice.domain.entity.Booking;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLookupMemoTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        RequestLookupMemo.close();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void repeatedLookupsInOneRequestLoadOnceAndAreReportedInDebugHeader() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new RequestLookupMemoFilter(true).doFilter(new MockHttpServletRequest("PUT", "/api/payments/booking/7/tx-hash"),
+                response, new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                        Booking first = loadBooking(7L);
+                        assertThat(loadBooking(7L)).isSameAs(first);
+                        loadBooking(7L);
+                        res.getWriter().write("ok");
+                    }
+                }));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(response.getHeader(RequestLookupMemoFilter.DEBUG_HEADER)).isEqualTo("2");
+        assertThat(response.getContentAsString()).isEqualTo("ok");
+    }
+
+    @Test
+    void entitiesBypassTheMemoInsideReadWriteTransactions() {
+        RequestLookupMemo.open();
+        loadBooking(7L);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        loadBooking(7L);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        // The read-write lookup dropped the memoized copy, which may now be out of date
+        loadBooking(7L);
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void withoutARequestEveryLookupLoads() {
+        loadBooking(7L);
+        loadBooking(7L);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private Booking loadBooking(Long id) {
+        return RequestLookupMemo.entity(Booking.class, id, () -> {
+            loads.incrementAndGet();
+            Booking booking = new Booking();
+            booking.setId(id);
+            return Optional.of(booking);
+        }).orElseThrow();
+    }
+}
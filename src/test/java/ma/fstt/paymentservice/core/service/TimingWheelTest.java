@@ -0,0 +1,66 @@
+package ma.fstt.paymentservice.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @Test
+    void firesEachKeyOnTheFirstTickAtOrAfterItsDeadlineAcrossLevels() {
+        // 8 slots x 3 levels = 512 ticks of horizon; deadlines go well beyond it
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 8, 3, 0);
+        Random random = new Random(42);
+        TreeMap<Long, List<Integer>> expected = new TreeMap<>();
+        for (int key = 0; key < 2_000; key++) {
+            long deadlineTick = 1 + random.nextInt(3_000);
+            int phase = random.nextInt(10);
+            wheel.schedule(key, deadlineTick * 10 - phase);
+            expected.computeIfAbsent(deadlineTick, t -> new ArrayList<>()).add(key);
+        }
+
+        for (long tick = 1; tick <= 3_000; tick++) {
+            List<Integer> fired = wheel.advanceTo(tick * 10);
+            assertThat(fired).as("tick %d", tick)
+                    .containsExactlyInAnyOrderElementsOf(expected.getOrDefault(tick, List.of()));
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rescheduleReplacesAndCancelRemoves() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 64, 4, 0);
+        wheel.schedule("a", 5_000);
+        wheel.schedule("b", 5_000);
+        wheel.schedule("a", 120_000);
+        assertThat(wheel.cancel("b")).isTrue();
+        assertThat(wheel.cancel("b")).isFalse();
+
+        assertThat(wheel.advanceTo(60_000)).isEmpty();
+        assertThat(wheel.advanceTo(120_000)).containsExactly("a");
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 64, 4, 100_000);
+        wheel.advanceTo(200_000);
+        wheel.schedule("late", 50_000);
+
+        assertThat(wheel.advanceTo(200_999)).isEmpty();
+        assertThat(wheel.advanceTo(201_000)).containsExactly("late");
+    }
+
+    @Test
+    void neverFiresBeforeTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 64, 4, 0);
+        wheel.schedule("mid-tick", 600_500);
+
+        assertThat(wheel.advanceTo(600_999)).isEmpty();
+        assertThat(wheel.advanceTo(601_000)).containsExactly("mid-tick");
+    }
+}
@@ -0,0 +1,29 @@
+package ma.fstt.paymentservice.domain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Starts JPA with {@code ddl-auto=validate} over the Flyway migrations on H2 (PostgreSQL mode), so
+ * an entity mapping that drifts from the migrated schema fails the build. The same validation runs
+ * on PostgreSQL in {@link ma.fstt.paymentservice.domain.repository.RepositoryQueryPlanTest}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema-validation;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class SchemaValidationTest {
+
+    @Test
+    void entitiesMatchTheMigratedSchema() {
+        // Validation runs while the context starts; reaching this point means it passed
+    }
+}
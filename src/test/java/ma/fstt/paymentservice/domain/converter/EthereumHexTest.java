@@ -0,0 +1,40 @@
+package ma.fstt.paymentservice.domain.converter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EthereumHexTest {
+
+    private final WalletAddressConverter walletConverter = new WalletAddressConverter();
+    private final TxHashConverter txHashConverter = new TxHashConverter();
+
+    @Test
+    void storesChecksummedAddressAsLowercaseTextAndReadsOtherWritersLowercase() {
+        assertThat(walletConverter.convertToDatabaseColumn(" 0xf39Fd6e51aad88F6F4ce6aB8827279cffFb92266 "))
+                .isEqualTo("0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266");
+        assertThat(walletConverter.convertToEntityAttribute("0xF39Fd6e51aad88F6F4ce6aB8827279cffFb92266"))
+                .isEqualTo("0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266");
+        assertThat(walletConverter.convertToEntityAttribute("")).isNull();
+    }
+
+    @Test
+    void storesTxHashAsThirtyTwoBytes() {
+        String hash = "0x5C504ED432CB51138BCF09AA5E8A410DD4A1E204EF84BFED1BE16DFBA1B22060";
+
+        byte[] stored = txHashConverter.convertToDatabaseColumn(hash);
+
+        assertThat(stored).hasSize(EthereumHex.TX_HASH_BYTES);
+        assertThat(txHashConverter.convertToEntityAttribute(stored)).isEqualTo(hash.toLowerCase().replace("0X", "0x"));
+    }
+
+    @Test
+    void mapsBlankToNullAndRejectsWrongWidth() {
+        assertThat(walletConverter.convertToDatabaseColumn("  ")).isNull();
+        assertThat(txHashConverter.convertToEntityAttribute(null)).isNull();
+        assertThat(EthereumHex.isTxHash("pending-3f2a4c1e-9b7d-4e2a-8c55-0d6f1e2b3a4c")).isFalse();
+        assertThatThrownBy(() -> txHashConverter.convertToDatabaseColumn("0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,94 @@
+package ma.fstt.paymentservice.domain.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs V3/V4 and V8 on H2 (PostgreSQL mode) over rows written by the pre-V3 schema.
+ */
+class V3BinaryHexMigrationTest {
+
+    private static final String TX_HASH = "0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060";
+
+    @Test
+    void movesPendingPlaceholdersToReferenceIdAndConvertsHashes() {
+        DriverManagerDataSource dataSource = dataSource("v3-backfill");
+        migrate(dataSource, "2");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        UUID reference = UUID.randomUUID();
+        insertTransaction(jdbc, 1, "pending-" + reference);
+        insertTransaction(jdbc, 2, TX_HASH);
+        insertTransaction(jdbc, 3, " ");
+
+        migrate(dataSource, "latest");
+
+        assertThat(jdbc.queryForObject("SELECT reference_id FROM transactions WHERE id = 1", UUID.class))
+                .isEqualTo(reference);
+        assertThat(jdbc.queryForObject("SELECT tx_hash FROM transactions WHERE id = 1", byte[].class)).isNull();
+        assertThat(jdbc.queryForObject("SELECT OCTET_LENGTH(tx_hash) FROM transactions WHERE id = 2", Integer.class))
+                .isEqualTo(32);
+        assertThat(jdbc.queryForObject("SELECT reference_id FROM transactions WHERE id = 2", UUID.class)).isNull();
+        assertThat(jdbc.queryForObject("SELECT tx_hash FROM transactions WHERE id = 3", byte[].class)).isNull();
+    }
+
+    @Test
+    void failsInsteadOfDroppingValuesItCannotConvert() {
+        DriverManagerDataSource dataSource = dataSource("v3-invalid");
+        migrate(dataSource, "2");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        insertTransaction(jdbc, 1, TX_HASH);
+        insertTransaction(jdbc, 7, "pending-not-a-uuid");
+
+        assertThatThrownBy(() -> migrate(dataSource, "latest"))
+                .isInstanceOf(FlywayException.class)
+                .hasStackTraceContaining("7='pending-not-a-uuid'");
+    }
+
+    @Test
+    void keepsTheSharedWalletAddressAsLowercaseText() {
+        DriverManagerDataSource dataSource = dataSource("v8-wallet");
+        migrate(dataSource, "2");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO users (id, first_name, last_name, email, password, is_enabled, wallet_address)"
+                + " VALUES (1, 'a', 'b', 'a@b.c', 'x', TRUE, ' 0xF39Fd6e51aad88F6F4ce6aB8827279cffFb92266 ')");
+        jdbc.update("INSERT INTO users (id, first_name, last_name, email, password, is_enabled, wallet_address)"
+                + " VALUES (2, 'a', 'b', 'b@b.c', 'x', TRUE, 'not-an-address')");
+
+        migrate(dataSource, "latest");
+
+        assertThat(jdbc.queryForObject("SELECT wallet_address FROM users WHERE id = 1", String.class))
+                .isEqualTo("0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266");
+        assertThat(jdbc.queryForObject("SELECT wallet_address FROM users WHERE id = 2", String.class))
+                .isEqualTo("not-an-address");
+        // Other services keep writing text in whatever case they use
+        jdbc.update("INSERT INTO users (id, first_name, last_name, email, password, is_enabled, wallet_address)"
+                + " VALUES (3, 'a', 'b', 'c@b.c', 'x', TRUE, '0xABC')");
+    }
+
+    private static void insertTransaction(JdbcTemplate jdbc, long id, String txHash) {
+        jdbc.update("INSERT INTO transactions (id, user_id, tx_hash, amount, status, created_at) "
+                + "VALUES (?, 1, ?, 10.00, 'PENDING', CURRENT_TIMESTAMP)", id, txHash);
+    }
+
+    private static DriverManagerDataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static void migrate(DriverManagerDataSource dataSource, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .table("payments_schema_history")
+                .locations("classpath:db/migration", "classpath:ma/fstt/paymentservice/domain/migration")
+                .target(target)
+                .load()
+                .migrate();
+    }
+}
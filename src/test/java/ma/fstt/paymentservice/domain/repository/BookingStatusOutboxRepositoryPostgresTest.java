@@ -0,0 +1,128 @@
+package ma.fstt.paymentservice.domain.repository;
+
+import ma.fstt.paymentservice.domain.entity.BookingStatusOutbox;
+import ma.fstt.paymentservice.domain.entity.enums.OutboxStateEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link BookingStatusOutboxRepository#upsertPending} on PostgreSQL over the migrated schema;
+ * H2 has no {@code INSERT ... ON CONFLICT DO UPDATE}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.hibernate.ddl-auto=validate")
+class BookingStatusOutboxRepositoryPostgresTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private BookingStatusOutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertsAPendingRowForANewBooking() {
+        assertThat(outboxRepository.upsertPending(1L, "CONFIRMED", NOW)).isEqualTo(1);
+
+        BookingStatusOutbox row = reload(1L);
+        assertThat(row.getStatus()).isEqualTo("CONFIRMED");
+        assertThat(row.getState()).isEqualTo(OutboxStateEnum.PENDING);
+        assertThat(row.getAttempts()).isZero();
+        assertThat(row.getNextAttemptAt()).isEqualTo(NOW);
+        assertThat(row.getCreatedAt()).isEqualTo(NOW);
+        assertThat(row.getLastError()).isNull();
+        assertThat(row.getVersion()).isZero();
+    }
+
+    @Test
+    void coalescesASecondStatusIntoTheBookingsRow() {
+        outboxRepository.upsertPending(2L, "CONFIRMED", NOW);
+        Long id = reload(2L).getId();
+        // Delivery of the first status failed a few times
+        jdbcTemplate.update("UPDATE booking_status_outbox SET state = 'FAILED', attempts = 3, last_error = 'timeout'"
+                + " WHERE id = ?", id);
+        Instant later = NOW.plus(5, ChronoUnit.MINUTES);
+
+        outboxRepository.upsertPending(2L, "CANCELLED", later);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM booking_status_outbox WHERE booking_id = 2", Integer.class)).isEqualTo(1);
+        BookingStatusOutbox row = reload(2L);
+        assertThat(row.getId()).isEqualTo(id);
+        assertThat(row.getStatus()).isEqualTo("CANCELLED");
+        assertThat(row.getState()).isEqualTo(OutboxStateEnum.PENDING);
+        assertThat(row.getAttempts()).isZero();
+        assertThat(row.getLastError()).isNull();
+        assertThat(row.getNextAttemptAt()).isEqualTo(later);
+        assertThat(row.getCreatedAt()).isEqualTo(NOW);
+        assertThat(row.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void deleteDeliveredKeepsARowRewrittenWhileInFlight() {
+        outboxRepository.upsertPending(3L, "CONFIRMED", NOW);
+        BookingStatusOutbox sent = reload(3L);
+        outboxRepository.upsertPending(3L, "CANCELLED", NOW);
+
+        assertThat(outboxRepository.deleteDelivered(sent.getId(), sent.getVersion())).isZero();
+        BookingStatusOutbox pending = reload(3L);
+        assertThat(pending.getStatus()).isEqualTo("CANCELLED");
+
+        assertThat(outboxRepository.deleteDelivered(pending.getId(), pending.getVersion())).isEqualTo(1);
+        entityManager.clear();
+        assertThat(outboxRepository.findByBookingId(3L)).isEmpty();
+    }
+
+    @Test
+    void upsertedIdsDoNotCollideWithPersistedOnes() {
+        BookingStatusOutbox before = outboxRepository.saveAndFlush(newRow(4L));
+        outboxRepository.upsertPending(5L, "CONFIRMED", NOW);
+        BookingStatusOutbox after = outboxRepository.saveAndFlush(newRow(6L));
+
+        assertThat(reload(5L).getId()).isNotIn(before.getId(), after.getId());
+    }
+
+    private BookingStatusOutbox reload(Long bookingId) {
+        entityManager.clear();
+        return outboxRepository.findByBookingId(bookingId).orElseThrow();
+    }
+
+    private static BookingStatusOutbox newRow(Long bookingId) {
+        BookingStatusOutbox row = new BookingStatusOutbox();
+        row.setBookingId(bookingId);
+        row.setStatus("CONFIRMED");
+        row.setNextAttemptAt(NOW);
+        return row;
+    }
+}
@@ -0,0 +1,116 @@
+package ma.fstt.paymentservice.domain.repository;
+
+import ma.fstt.paymentservice.domain.converter.EthereumHex;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the Flyway migrations on PostgreSQL and checks that the hot-path repository queries,
+ * exactly as Hibernate issues them, can be served from the migration's indexes. H2's planner
+ * says nothing about PostgreSQL's, so without Docker this is skipped rather than run on H2.
+ * The tables are empty, so sequential scans are disabled for the EXPLAIN.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ma.fstt.paymentservice.domain.repository.RepositoryQueryPlanTest$CapturingInspector"
+})
+class RepositoryQueryPlanTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        CapturingInspector.lastSql = null;
+    }
+
+    @Test
+    void findByTxHashUsesTxHashIndex() {
+        String txHash = "0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060";
+        transactionRepository.findByTxHash(txHash);
+
+        assertThat(plan((Object) EthereumHex.toBytes(txHash, EthereumHex.TX_HASH_BYTES)))
+                .contains("idx_transactions_tx_hash");
+    }
+
+    @Test
+    void latestTransactionForBookingUsesBookingIndex() {
+        transactionRepository.findFirstByBookingIdOrderByCreatedAtDesc(1L);
+
+        assertThat(plan(1L, 1)).contains("idx_transactions_booking_created");
+    }
+
+    @Test
+    void overlappingBookingsUsePropertyDatesIndex() {
+        LocalDate checkIn = LocalDate.of(2025, 1, 1);
+        LocalDate checkOut = LocalDate.of(2025, 1, 5);
+        bookingRepository.findOverlappingBookings("p-1", 1L, checkIn, checkOut);
+
+        assertThat(plan("p-1", 1L, checkOut, checkIn)).contains("idx_bookings_property_dates_status");
+    }
+
+    @Test
+    void negotiationReseedUsesStatusExpiryIndex() {
+        Instant horizon = Instant.parse("2025-01-01T00:00:00Z");
+        bookingRepository.findNegotiationDeadlinesBefore(horizon);
+
+        assertThat(plan(Timestamp.from(horizon))).contains("idx_bookings_status_negotiation_expiry");
+    }
+
+    private String plan(Object... args) {
+        String sql = CapturingInspector.lastSql;
+        assertThat(sql).as("captured SQL").isNotNull();
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        List<String> rows = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args);
+        return String.join("\n", rows).toLowerCase(Locale.ROOT);
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+        static volatile String lastSql;
+
+        @Override
+        public String inspect(String sql) {
+            lastSql = sql;
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ma.fstt.paymentservice.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryTimingListenerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void timesStatementsByMethodAndTypeAndCountsSlowOnes() throws Exception {
+        DataSource dataSource = proxied(0);
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE t (id BIGINT, secret VARCHAR(20))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO t VALUES (?, ?)")) {
+                insert.setLong(1, 1L);
+                insert.setString(2, "hunter2");
+                insert.executeUpdate();
+            }
+        }
+
+        assertThat(registry.get("payments_db_query_seconds")
+                .tags("method", RepositoryMethodTracker.NONE, "type", "insert", "success", "true")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("payments_db_query_seconds").tag("type", "other").timer().count()).isEqualTo(1);
+        assertThat(registry.get("payments_db_slow_queries_total").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void fastStatementsAreNotCountedAsSlow() throws Exception {
+        DataSource dataSource = proxied(60_000);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT 1");
+        }
+
+        assertThat(registry.get("payments_db_query_seconds").tag("type", "select").timer().count()).isEqualTo(1);
+        assertThat(registry.find("payments_db_slow_queries_total").counter()).isNull();
+    }
+
+    private DataSource proxied(long slowThresholdMs) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:query-timing-" + slowThresholdMs + ";DB_CLOSE_DELAY=-1");
+        return ProxyDataSourceBuilder.create(h2)
+                .listener(new QueryTimingListener(registry, slowThresholdMs, 1.0))
+                .build();
+    }
+}